@@ -0,0 +1,242 @@
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+// Writes an extracted csv file (no header, class in the last column) as an arff file, along with its binary copy
+// The values and attribute types are the ones CSVLoader would read and infer, found by streaming over the file instead of loading it
+// (the extracted values never hold commas, so a cell is never split by a comma between quotes)
+public class ArffWriter {
+    // Attribute types, decided by the first non-missing value of the column (as CSVLoader does)
+    private static final int MISSING = 0; // no value seen yet (string if it stays so)
+    private static final int NUMERIC = 1;
+    private static final int STRING = 2; // numeric column with a non-numeric value
+    private static final int NOMINAL = 3;
+
+    // Writes input + ".arff" and its binary copy (BinaryDataset)
+    // Records whose features are all null (including the dummy records of the missing classes) are not written
+    public static void write(String input, ArrayList<String> attribute_names) {
+        int no_of_columns = attribute_names.size() + 1;
+        int[] types = new int[no_of_columns];
+        ArrayList<LinkedHashSet<String>> nominal_values = new ArrayList<>();
+        for (int j = 0; j < no_of_columns; j++)
+            nominal_values.add(new LinkedHashSet<>());
+
+        BufferedReader reader = null;
+        BufferedWriter writer = null;
+        BinaryDataset.Writer binary = null;
+        boolean written = false;
+        try {
+            // First pass: attribute types, nominal values (in order of appearance) and no. of records written
+            int no_of_records = 0;
+            reader = new BufferedReader(new FileReader(input));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+
+                String[] tokens = getCells(line);
+                if (!isNullRecord(tokens, attribute_names.size()))
+                    no_of_records++;
+
+                for (int j = 0; j < no_of_columns && j < tokens.length; j++) { // for each column
+                    String token = tokens[j];
+                    if (token.equals("?"))
+                        continue;
+
+                    if (types[j] == MISSING)
+                        types[j] = isNumeric(token) ? NUMERIC : NOMINAL;
+                    else if (types[j] == NUMERIC && !isNumeric(token))
+                        types[j] = STRING;
+
+                    if (types[j] == NOMINAL)
+                        nominal_values.get(j).add(token);
+                }
+            }
+            reader.close();
+
+            // Second pass: header and records
+            writer = new BufferedWriter(new FileWriter(input + ".arff", false), 1 << 16);
+
+            String relation = new File(input).getName();
+            if (relation.endsWith(".csv"))
+                relation = relation.substring(0, relation.length() - ".csv".length());
+            writer.write("@relation " + Utils.quote(relation) + "\n\n");
+
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            ArrayList<HashMap<String, Integer>> nominal_indices = new ArrayList<>();
+            for (int j = 0; j < no_of_columns; j++) { // for each column
+                String name = j < attribute_names.size() ? attribute_names.get(j).split(",")[0] : "class";
+                writer.write("@attribute " + Utils.quote(name) + " " + getType(types[j], nominal_values.get(j)) + "\n");
+
+                HashMap<String, Integer> indices = new HashMap<>();
+                for (String value : nominal_values.get(j))
+                    indices.put(value, indices.size());
+                nominal_indices.add(indices);
+
+                if (types[j] == NUMERIC)
+                    attributes.add(new Attribute(name));
+                else if (types[j] == NOMINAL)
+                    attributes.add(new Attribute(name, new ArrayList<>(nominal_values.get(j))));
+                else
+                    attributes.add(new Attribute(name, (ArrayList<String>) null));
+            }
+            writer.write("\n@data\n");
+
+            // Binary copy, holding the values the arff file is read as
+            binary = new BinaryDataset.Writer(BinaryDataset.binaryPath(input + ".arff"), new Instances(relation, attributes, 0), no_of_records);
+            double[] values = new double[no_of_columns];
+
+            StringBuilder record = new StringBuilder();
+            reader = new BufferedReader(new FileReader(input));
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+
+                String[] tokens = getCells(line);
+                if (isNullRecord(tokens, attribute_names.size()))
+                    continue;
+
+                record.setLength(0);
+                for (int j = 0; j < no_of_columns; j++) { // for each column
+                    String token = j < tokens.length ? tokens[j] : "?";
+
+                    if (j > 0)
+                        record.append(',');
+
+                    if (token.equals("?")) {
+                        record.append('?');
+                        values[j] = Utils.missingValue();
+                    }
+                    else if (types[j] == NUMERIC) {
+                        String number = Utils.doubleToString(Double.parseDouble(token), 6);
+                        record.append(number);
+                        values[j] = Double.parseDouble(number);
+                    }
+                    else {
+                        record.append(Utils.quote(token));
+                        values[j] = types[j] == NOMINAL ? nominal_indices.get(j).get(token) : binary.getStringValue(j, token);
+                    }
+                }
+                record.append('\n');
+                writer.append(record);
+                binary.add(values, 1.0);
+            }
+            reader.close();
+
+            writer.close();
+            binary.close(); // after the arff file, so that the binary copy is up to date
+            written = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        finally {
+            // Closing the resources, the temporary file of an unfinished binary copy is deleted
+            try {
+                if (reader != null)
+                    reader.close();
+
+                if (writer != null)
+                    writer.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            if (binary != null && !written)
+                binary.abort();
+        }
+    }
+
+    private static String getType(int type, LinkedHashSet<String> nominal_values) {
+        if (type == NUMERIC)
+            return "numeric";
+        if (type == NOMINAL) {
+            StringBuilder result = new StringBuilder("{");
+            for (String value : nominal_values) {
+                if (result.length() > 1)
+                    result.append(',');
+                result.append(Utils.quote(value));
+            }
+            return result.append('}').toString();
+        }
+        return "string";
+    }
+
+    // Cells of a record, read as CSVLoader does: a value enclosed in ' or " is unquoted (with its escapes, e.g. \' or \\),
+    // a blank value is missing
+    private static String[] getCells(String line) {
+        String[] cells = line.split(",", -1);
+
+        for (int j = 0; j < cells.length; j++) {
+            String cell = cells[j];
+
+            if (cell.length() >= 2 && (cell.charAt(0) == '\'' || cell.charAt(0) == '"') && cell.charAt(cell.length() - 1) == cell.charAt(0))
+                cell = unescape(cell.substring(1, cell.length() - 1));
+
+            cells[j] = cell.trim().isEmpty() ? "?" : cell;
+        }
+
+        return cells;
+    }
+
+    // Escapes of a quoted value (as java.io.StreamTokenizer reads them)
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0)
+            return value;
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i == value.length() - 1) {
+                result.append(c);
+                continue;
+            }
+
+            c = value.charAt(++i);
+            switch (c) {
+                case 'a': result.append((char) 7); break;
+                case 'b': result.append('\b'); break;
+                case 'f': result.append('\f'); break;
+                case 'n': result.append('\n'); break;
+                case 'r': result.append('\r'); break;
+                case 't': result.append('\t'); break;
+                case 'v': result.append((char) 11); break;
+                default:
+                    if (c >= '0' && c <= '7') { // octal, up to 3 digits (up to \377)
+                        int code = c - '0';
+                        int max_digits = c <= '3' ? 2 : 1;
+                        while (max_digits-- > 0 && i + 1 < value.length() && value.charAt(i + 1) >= '0' && value.charAt(i + 1) <= '7')
+                            code = code * 8 + (value.charAt(++i) - '0');
+                        result.append((char) code);
+                    }
+                    else
+                        result.append(c);
+            }
+        }
+
+        return result.toString();
+    }
+
+    // Record whose features are all null
+    private static boolean isNullRecord(String[] tokens, int no_of_attributes) {
+        int no_of_null = 0;
+        for (int j = 0; j < tokens.length - 1; j++)
+            if (tokens[j].equals("?"))
+                no_of_null++;
+        return no_of_null >= no_of_attributes;
+    }
+
+    private static boolean isNumeric(String token) {
+        try {
+            Double.parseDouble(token);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ArffLoader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+// Columnar binary copy of an arff file (x.arff -> x.bin), read through memory mapping instead of the arff tokenizer
+// The copy is written by ArffWriter along with the arff files it writes, or converted from an existing arff file
+// Layout: magic, version, relation, no of attributes, no of instances,
+//         attributes (name, type and nominal/string values), weights (if any is not 1),
+//         then one column of doubles per attribute (NaN for missing values, value index for nominal/string attributes)
+public class BinaryDataset {
+    private static final int MAGIC = 0x53494442; // "SIDB"
+    private static final int VERSION = 1;
+
+    private static final byte NUMERIC = 0;
+    private static final byte NOMINAL = 1;
+    private static final byte STRING = 2;
+
+    // Path of the binary copy of an arff file
+    public static String binaryPath(String arff_path) {
+        if (arff_path.endsWith(".arff"))
+            return arff_path.substring(0, arff_path.length() - ".arff".length()) + ".bin";
+        return arff_path + ".bin";
+    }
+
+    // Load an arff file, from its binary copy if it is up to date
+    public static Instances load(String arff_path) throws IOException {
+        File arff = new File(arff_path);
+        File binary = new File(binaryPath(arff_path));
+
+        if (binary.isFile() && binary.lastModified() >= arff.lastModified())
+            return read(binary.getPath());
+
+        BufferedReader reader = new BufferedReader(new FileReader(arff));
+        Instances data = new Instances(reader);
+        reader.close();
+        return data;
+    }
+
+    // Write the binary copy of an arff file, reading the arff file row by row (twice: the rows are counted first)
+    public static void convert(String arff_path) throws IOException {
+        ArffLoader loader = new ArffLoader();
+        loader.setFile(new File(arff_path));
+        Instances structure = loader.getStructure();
+        int no_of_instances = 0;
+        try {
+            while (loader.getNextInstance(structure) != null)
+                no_of_instances++;
+        }
+        finally {
+            loader.reset();
+        }
+
+        loader = new ArffLoader();
+        loader.setFile(new File(arff_path));
+        structure = loader.getStructure();
+        Writer writer = new Writer(binaryPath(arff_path), structure, no_of_instances);
+        boolean closed = false;
+        try {
+            Instance row;
+            while ((row = loader.getNextInstance(structure)) != null)
+                writer.add(row);
+
+            writer.close();
+            closed = true;
+        }
+        finally {
+            loader.reset();
+            if (!closed)
+                writer.abort();
+        }
+    }
+
+    public static Instances read(String path) throws IOException {
+        Mapped mapped = map(path);
+
+        Instances data = new Instances(mapped.header, mapped.no_of_instances);
+        for (int i = 0; i < mapped.no_of_instances; i++) // for each row
+            data.add(mapped.get(i));
+
+        return data;
+    }
+
+    // Map the columns of a binary dataset without decoding the rows
+    public static Mapped map(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+
+        // the header is small, the columns are mapped one by one so that files larger than 2 GB can be read
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            channel.close();
+            throw new IOException("Not a binary dataset: " + path);
+        }
+
+        String relation = readString(header);
+        int no_of_attributes = header.getInt();
+        int no_of_instances = header.getInt();
+
+        ArrayList<Attribute> attributes = new ArrayList<>(no_of_attributes);
+        for (int a = 0; a < no_of_attributes; a++) { // for each attribute
+            String name = readString(header);
+            byte type = header.get();
+
+            if (type == NUMERIC)
+                attributes.add(new Attribute(name));
+            else {
+                ArrayList<String> values = new ArrayList<>();
+                int no_of_values = header.getInt();
+                for (int v = 0; v < no_of_values; v++)
+                    values.add(readString(header));
+
+                if (type == NOMINAL)
+                    attributes.add(new Attribute(name, values));
+                else {
+                    Attribute attribute = new Attribute(name, (ArrayList<String>) null);
+                    for (String value : values)
+                        attribute.addStringValue(value);
+                    attributes.add(attribute);
+                }
+            }
+        }
+
+        Mapped mapped = new Mapped();
+        mapped.header = new Instances(relation, attributes, 0);
+        mapped.no_of_instances = no_of_instances;
+
+        if (header.get() != 0) {
+            mapped.weights = new double[no_of_instances];
+            header.asDoubleBuffer().get(mapped.weights);
+            header.position(header.position() + no_of_instances * 8);
+        }
+
+        long offset = header.position();
+        mapped.columns = new DoubleBuffer[no_of_attributes];
+        for (int a = 0; a < no_of_attributes; a++) { // for each attribute
+            mapped.columns[a] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) no_of_instances * 8).asDoubleBuffer();
+            offset += (long) no_of_instances * 8;
+        }
+        channel.close();
+
+        return mapped;
+    }
+
+    // Mapped columns of a binary dataset, rows are decoded on demand
+    public static class Mapped {
+        Instances header; // attributes, without rows
+        int no_of_instances;
+        double[] weights; // null if all the weights are 1
+        DoubleBuffer[] columns;
+
+        public Instances getHeader() {
+            return header;
+        }
+
+        public int size() {
+            return no_of_instances;
+        }
+
+        public Instance get(int row) {
+            double[] values = new double[columns.length];
+            for (int a = 0; a < columns.length; a++)
+                values[a] = columns[a].get(row);
+
+            return new DenseInstance(weights == null ? 1.0 : weights[row], values);
+        }
+    }
+
+    // Writes a binary dataset row by row, without keeping the rows in memory
+    // The columns are filled in a memory-mapped temporary file, then copied after the header when the writer is closed
+    // (the header holds the values of the string attributes, which are only known once all the rows are added)
+    public static class Writer {
+        private String path;
+        private Instances header;
+        private int no_of_instances;
+        private int position = 0;
+        private boolean weighted = false;
+
+        private File temporary;
+        private FileChannel channel;
+        private DoubleBuffer weights;
+        private DoubleBuffer[] columns;
+
+        public Writer(String path, Instances header, int no_of_instances) throws IOException {
+            // attributes, the string attributes being filled while the rows are added
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            for (int a = 0; a < header.numAttributes(); a++) { // for each attribute
+                Attribute attribute = header.attribute(a);
+
+                if (attribute.isString())
+                    attributes.add(new Attribute(attribute.name(), (ArrayList<String>) null));
+                else if (attribute.isNumeric() || attribute.isNominal())
+                    attributes.add((Attribute) attribute.copy());
+                else
+                    throw new IOException("Unsupported attribute type: " + attribute);
+            }
+
+            this.path = path;
+            this.header = new Instances(header.relationName(), attributes, 0);
+            this.no_of_instances = no_of_instances;
+
+            // one column of weights, then one column per attribute
+            temporary = new File(path + ".tmp");
+            channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long length = (long) no_of_instances * 8;
+                weights = channel.map(FileChannel.MapMode.READ_WRITE, 0, length).asDoubleBuffer();
+                columns = new DoubleBuffer[attributes.size()];
+                for (int a = 0; a < columns.length; a++) // for each attribute
+                    columns[a] = channel.map(FileChannel.MapMode.READ_WRITE, (a + 1) * length, length).asDoubleBuffer();
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        // Value of a string in a string attribute, to be used in the rows added
+        public double getStringValue(int attribute, String value) {
+            return header.attribute(attribute).addStringValue(value);
+        }
+
+        public void add(double[] values, double weight) throws IOException {
+            if (position == no_of_instances)
+                throw new IOException("More rows than expected (" + no_of_instances + "): " + path);
+
+            weights.put(position, weight);
+            weighted |= weight != 1.0;
+            for (int a = 0; a < columns.length; a++) // for each attribute
+                columns[a].put(position, values[a]);
+            position++;
+        }
+
+        // Add a row of data having the same attributes
+        public void add(Instance row) throws IOException {
+            double[] values = new double[columns.length];
+            for (int a = 0; a < columns.length; a++) { // for each attribute
+                if (row.isMissing(a))
+                    values[a] = Utils.missingValue();
+                else if (header.attribute(a).isString())
+                    values[a] = getStringValue(a, row.stringValue(a));
+                else
+                    values[a] = row.value(a);
+            }
+
+            add(values, row.weight());
+        }
+
+        // Writes the binary dataset; on failure the partially written file is deleted
+        public void close() throws IOException {
+            if (position != no_of_instances) {
+                abort();
+                throw new IOException("Less rows than expected (" + position + "/" + no_of_instances + "): " + path);
+            }
+
+            boolean written = false;
+            FileOutputStream file = null;
+            try {
+                file = new FileOutputStream(path);
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                writeString(output, header.relationName());
+                output.writeInt(columns.length);
+                output.writeInt(no_of_instances);
+
+                // Attributes
+                for (int a = 0; a < columns.length; a++) { // for each attribute
+                    Attribute attribute = header.attribute(a);
+                    writeString(output, attribute.name());
+
+                    if (attribute.isNumeric())
+                        output.writeByte(NUMERIC);
+                    else {
+                        output.writeByte(attribute.isNominal() ? NOMINAL : STRING);
+                        output.writeInt(attribute.numValues());
+                        for (int v = 0; v < attribute.numValues(); v++)
+                            writeString(output, attribute.value(v));
+                    }
+                }
+
+                output.writeBoolean(weighted);
+                output.flush();
+
+                // Weights (if any is not 1) and columns
+                long length = (long) no_of_instances * 8;
+                if (weighted)
+                    transfer(0, length, file.getChannel());
+                transfer(length, length * columns.length, file.getChannel());
+
+                output.close();
+                written = true;
+            }
+            finally {
+                if (!written) {
+                    if (file != null) {
+                        try {
+                            file.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                    new File(path).delete();
+                }
+                abort();
+            }
+        }
+
+        // Releases the temporary file without writing the binary dataset (no-op once closed)
+        public void abort() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            temporary.delete();
+        }
+
+        private void transfer(long from, long count, FileChannel target) throws IOException {
+            while (count > 0) {
+                long transferred = channel.transferTo(from, count, target);
+                from += transferred;
+                count -= transferred;
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer input) {
+        byte[] bytes = new byte[input.getInt()];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -46,10 +46,9 @@ public class BuildModel {
         System.out.println("Classifier code: " + classifier);
         System.out.println("Indices removed: " + indices);
 
-        BufferedReader trainfile = readDataFile(trainfile_link);
         Instances traindata = null;
         try {
-            traindata = new Instances(trainfile);
+            traindata = BinaryDataset.load(trainfile_link);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -1,31 +1,50 @@
 import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.BatchPredictor;
+import weka.core.DenseInstance;
+import weka.core.Instance;
 import weka.core.Instances;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
+import weka.core.Utils;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @SuppressWarnings("deprecation")
 public class ClassifyGroup {
-    public void train_test(String testfile_link, String path, String k, ArrayList<ProtocolWeight> protocol_weights, boolean verbose, ArrayList<FeatureOrder> feature_orders, double threshold_group) throws Exception {
-        // Read test instances
+    private static final int BATCH_SIZE = 10000; // packets queued before the models are run
+
+    // Analyses run for each class: every group size for every threshold (group size 0 -> all the packets in one group)
+    private static final int[] THRESHOLDS = {70, 80, 90, 100};
+    private static final int[] GROUP_SIZES = {1, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100, 0};
+
+    private HashMap<String, Classifier> models = new HashMap<>(); // protocol name -> model
+    private HashMap<String, ModelProjection> projections = new HashMap<>(); // protocol name -> features of its model
+    private HashMap<String, ArrayList<ProtocolWeight>> routing_table = null; // last protocol of the known protocols -> known protocols
+    private HashMap<String, StringDouble> routes = new HashMap<>(); // frame.protocols -> protocol used to test the packet
+
+    public void train_test(String testfile_link, String path, String k, ArrayList<ProtocolWeight> protocol_weights, boolean verbose, ArrayList<FeatureOrder> feature_orders, double threshold_group, int max_threads) throws Exception {
+        // Open test instances (the packets are read one at a time while they are classified)
         System.out.println("Reading the arff file (" + testfile_link + ")...");
         System.out.println();
 
-        Instances testdata = new Instances(readDataFile(testfile_link));
-
-        // set class indices for test data
-        testdata.setClassIndex(testdata.numAttributes() - 1);
+        InstanceSource testdata = new InstanceSource(testfile_link);
+        Instances header = testdata.getHeader();
 
         // Get the class names
-        String s = testdata.classAttribute().toString();
+        String s = header.classAttribute().toString();
         String test = s.substring(s.indexOf("{") + 1, s.indexOf("}"));
         String[] classes = test.split(",");
 
@@ -35,49 +54,106 @@ public class ClassifyGroup {
             System.out.println(classes[i]);
         System.out.println();
 
-        // determine class index
+        // determine the classes to evaluate (all of them if k is "all" or not provided)
+        boolean all_classes = k.equals("") || k.equals("all");
+        boolean[] selected_classes = new boolean[classes.length];
         int actual_class = -1; // initialize
-        for (int i = 0; i < classes.length; i++) {
-            if (classes[i].equals(k)) {
-                actual_class = i;
-                break;
+        if (all_classes)
+            Arrays.fill(selected_classes, true);
+        else {
+            // determine class index
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i].equals(k)) {
+                    actual_class = i;
+                    break;
+                }
             }
-        }
-        if (actual_class == -1) {
-            System.out.println("Couldn't find the class name provided!");
-            System.exit(0);
+            if (actual_class == -1) {
+                System.out.println("Couldn't find the class name provided!");
+                System.exit(0);
+            }
+            selected_classes[actual_class] = true;
+
+            System.out.println("The class (selected) being processed is: " + classes[actual_class]);
+            System.out.println();
         }
 
-        System.out.println("The class (selected) being processed is: " + classes[actual_class]);
-        System.out.println("No. of original packets: " + testdata.numInstances());
+        int numClasses = header.numClasses();
 
-        // remove instances belonging to other classes other than the one selected by the user
-        int finalActual_class = actual_class;
-        testdata.removeIf(i -> {
-            return (((int) i.classValue()) != finalActual_class); // No return statement will break compilation
-        });
+        // classify packets once (packets belonging to the classes not selected by the user are skipped)
+        System.out.println("Classifying...");
+        ArrayList<ArrayList<StringDouble>> packet_labels = classify_packets(verbose, testdata, selected_classes, protocol_weights, feature_orders, path, classes, max_threads); // stores the protocol, weight and the label for each packet of each class
+        testdata.close();
 
-        System.out.println("No. of packets for the selected class: " + testdata.numInstances());
-        System.out.println();
+        if (!all_classes) {
+            analyze_class(verbose, packet_labels.get(actual_class), actual_class, numClasses, System.out);
+            return;
+        }
 
-        int numClasses = testdata.numClasses();
+        // analyze the groups of every class, in parallel unless the groups are printed
+        // (the report of each class is printed in the order of the classes once it is complete)
+        // classes without packets in the test data are left out of the confusion matrices
+        int[][][] predictions = new int[numClasses][THRESHOLDS.length * GROUP_SIZES.length][numClasses]; // actual class -> analysis -> no. of groups predicted as each class
+        if (verbose) {
+            for (int c = 0; c < numClasses; c++) {
+                if (packet_labels.get(c).isEmpty())
+                    continue;
+                System.out.println("Class: " + classes[c]);
+                System.out.println();
+                predictions[c] = analyze_class(true, packet_labels.get(c), c, numClasses, System.out);
+            }
+        }
+        else {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, max_threads));
+            ArrayList<ByteArrayOutputStream> reports = new ArrayList<>();
+            ArrayList<Future<int[][]>> results = new ArrayList<>();
+            for (int c = 0; c < numClasses; c++) {
+                int class_index = c;
+                ByteArrayOutputStream report = new ByteArrayOutputStream();
+                reports.add(report);
+                results.add(packet_labels.get(c).isEmpty() ? null : executor.submit(() -> analyze_class(false, packet_labels.get(class_index), class_index, numClasses, new PrintStream(report))));
+            }
 
-        // classify packets
-        System.out.println("Classifying...");
-        ArrayList<StringDouble> packet_labels = classify_packets(verbose, testdata, protocol_weights, feature_orders, path, classes); // stores the protocol, weight and the label for each packet
+            try {
+                for (int c = 0; c < numClasses; c++) {
+                    if (results.get(c) == null)
+                        continue;
+                    predictions[c] = results.get(c).get();
+                    System.out.println("Class: " + classes[c]);
+                    System.out.println();
+                    System.out.print(reports.get(c).toString());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
 
-System.exit(0);
+        // confusion matrix of each analysis
+        for (int t = 0; t < THRESHOLDS.length; t++) {
+            for (int g = 0; g < GROUP_SIZES.length; g++) {
+                int analysis = t * GROUP_SIZES.length + g;
+                System.out.println("Confusion matrix (threshold: " + THRESHOLDS[t] + ", number of packets in a group: " + (GROUP_SIZES[g] == 0 ? "all" : GROUP_SIZES[g]) + ")");
 
-        // analyze groups
-        for (int i = 70; i <= 100; i+=10) { // threshold
-            for (int j = 0; j <= 100; j+=10) { // no. of packets in group
-                if (j == 0) // increment it so it starts with 1 packet in group not 0
-                    analyze_group(1, verbose, packet_labels, actual_class, numClasses, i);
-                else
-                    analyze_group(j, verbose, packet_labels, actual_class, numClasses, i);
+                System.out.print("actual \\ predicted");
+                for (int c = 0; c < numClasses; c++)
+                    System.out.print("\t" + classes[c]);
+                System.out.println();
+
+                int correct = 0;
+                int total = 0;
+                for (int c = 0; c < numClasses; c++) { // for each actual class
+                    System.out.print(classes[c]);
+                    for (int p = 0; p < numClasses; p++) { // for each predicted class
+                        System.out.print("\t" + predictions[c][analysis][p]);
+                        total += predictions[c][analysis][p];
+                    }
+                    System.out.println();
+                    correct += predictions[c][analysis][c];
+                }
+
+                System.out.println("Rate: " + (correct / (double) total) * 100);
+                System.out.println();
             }
-            // analyze all packets at once
-            analyze_group(packet_labels.size(), verbose, packet_labels, actual_class, numClasses, i);
         }
 
 //        // analyze unique protocol packets
@@ -88,105 +164,70 @@ System.exit(0);
 //        System.out.println();
     }
 
-    public ArrayList<StringDouble> classify_packets(boolean verbose, Instances testdata, ArrayList<ProtocolWeight> protocol_weights, ArrayList<FeatureOrder> feature_orders, String path, String[] classes) {
-        ArrayList<StringDouble> packet_labels = new ArrayList<>();
+    // Runs the analyses of the groups of one class (each group size for each threshold)
+    // Returns for each analysis the number of groups predicted as each class
+    public int[][] analyze_class(boolean verbose, ArrayList<StringDouble> packet_labels, int actual_class, int no_of_classes, PrintStream out) {
+        int[][] predictions = new int[THRESHOLDS.length * GROUP_SIZES.length][];
+
+        for (int t = 0; t < THRESHOLDS.length; t++) // threshold
+            for (int g = 0; g < GROUP_SIZES.length; g++) // no. of packets in group
+                predictions[t * GROUP_SIZES.length + g] = analyze_group(GROUP_SIZES[g] == 0 ? packet_labels.size() : GROUP_SIZES[g], verbose, packet_labels, actual_class, no_of_classes, THRESHOLDS[t], out);
+
+        return predictions;
+    }
+
+    // The packets are routed one by one, then classified in batches (one per model, the models running in parallel)
+    // The packets are added to packet_labels (in their order) once their batches are classified, so if classifying stops
+    // with an error, the packets classified until then are returned
+    // Returns the labels of the packets of each selected class (empty for the other classes)
+    public ArrayList<ArrayList<StringDouble>> classify_packets(boolean verbose, InstanceSource testdata, boolean[] selected_classes, ArrayList<ProtocolWeight> protocol_weights, ArrayList<FeatureOrder> feature_orders, String path, String[] classes, int max_threads) {
+        ArrayList<ArrayList<StringDouble>> packet_labels = new ArrayList<>();
+        for (int c = 0; c < selected_classes.length; c++)
+            packet_labels.add(new ArrayList<>());
+        Instances header = testdata.getHeader();
+        int no_of_packets = 0;
+        int no_of_selected_packets = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, max_threads));
+        LinkedHashMap<String, ModelBatch> batches = new LinkedHashMap<>(); // protocol name -> packets waiting for its model
+        ArrayList<StringDouble> queued = new ArrayList<>(); // packets waiting in the batches, in their order
+        ArrayList<Integer> queued_classes = new ArrayList<>(); // actual class of each of these packets
 
         try {
             Classifier model; // ML classification model
 
             // for each packet
-            for (int i = 0; i < testdata.numInstances(); i++) {
+            Instance packet;
+            while ((packet = testdata.next()) != null) {
+                no_of_packets++;
+
+                // skip the packets of the other classes
+                int actual_class = (int) packet.classValue();
+                if (!selected_classes[actual_class])
+                    continue;
+
+                int i = no_of_selected_packets++;
                 if (i > 0 && i % 1000 == 0)
                     System.out.println(i);
 
                 // get the protocols that exist in the packet (frame.protocols field)
                 if (verbose)
-                    System.out.println("Protocols in the packet: " + testdata.get(i).stringValue(testdata.numAttributes() - 2));
-                String[] packet_protocols = testdata.get(i).stringValue(testdata.numAttributes() - 2).split(":");
-
-                ArrayList<StringDouble> pp_array = new ArrayList<>(); // holds the protocols to be considered (contains protocol name and weight)
-                for (int pp = 0; pp < packet_protocols.length; pp++) { // for each protocol in the packet
-                    for (int kp = 0; kp < protocol_weights.size(); kp++) { // for each known protocol
-                        // check if the protocol of the packet occurs in the last part of the known protocol (e.g. ssl -> ssl OR ip_tcp_ssl, both are OK)
-                        String last_protocol_in_known = protocol_weights.get(kp).name.split("_")[protocol_weights.get(kp).name.split("_").length - 1];
-                        String last_protocol_in_packet = packet_protocols[pp];
-
-                        if (last_protocol_in_known.equals(last_protocol_in_packet)) {
-                            // check if this has already been added (NOT EFFICIENT)
-                            boolean found = false;
-                            for (int tp = 0; tp < pp_array.size(); tp++) {
-                                if (pp_array.get(tp).protocol_used_to_test_instance.equals(protocol_weights.get(kp).name)) {
-                                    found = true;
-                                    break;
-                                }
-                            }
-
-                            if (!found) {
-                                StringDouble temp = new StringDouble();
-                                temp.protocol_used_to_test_instance = protocol_weights.get(kp).name;
-                                temp.weight = protocol_weights.get(kp).weight;
-                                pp_array.add(temp);
-                            }
-                        }
-                    }
-                }
+                    System.out.println("Protocols in the packet: " + packet.stringValue(header.numAttributes() - 2));
 
-                // sort the protocols to be considered by the weight (descending)
-                Collections.sort(pp_array, (bo1, bo2) -> {
-                    if (bo1.weight < bo2.weight)
-                        return 1;
-                    else if (bo1.weight > bo2.weight)
-                        return -1;
-                    else
-                        return 0;
-                });
-
-                // get the first item since it is sorted by weight in descending order
-                StringDouble protocol_to_test = pp_array.get(0);
+                // get the protocol (model) with the highest weight among those matching the protocols of the packet
+                StringDouble protocol_to_test = getRoute(packet.stringValue(header.numAttributes() - 2), protocol_weights);
+                if (protocol_to_test == null)
+                    throw new Exception("No model for the protocols: " + packet.stringValue(header.numAttributes() - 2));
 
                 if (verbose)
                     System.out.println("Protocol to test: " + protocol_to_test.protocol_used_to_test_instance + ", " + protocol_to_test.weight);
 
-                // the path to the protocol's model
-                String model_path = path + protocol_to_test.protocol_used_to_test_instance + "/model";
+                // get the protocol's model (loaded from the disk the first time only)
+                model = getModel(path, protocol_to_test.protocol_used_to_test_instance, verbose);
 
-                // check if model exists
-                File f = new File(model_path);
-                if (!f.exists()) {
-                    System.out.println("Model " + model_path + " doesn't exist!");
-                    System.exit(0);
-                }
-
-                if (verbose)
-                    System.out.println("Model path: " + model_path);
-
-                // load the model
-                model = (Classifier) weka.core.SerializationHelper.read(model_path);
-
-                // Reorder features according to that of the model
-                ArrayList<String> features = new ArrayList<>();
-                for (int t = 0; t < feature_orders.size(); t++) {
-                    if (feature_orders.get(t).getProtocol_name().equals(protocol_to_test.protocol_used_to_test_instance)) {
-                        for (int tt = 0; tt < feature_orders.get(t).getFeaturesSize(); tt++)
-                            features.add(feature_orders.get(t).getFeatures().get(tt));
-                        break;
-                    }
-                }
-
-                String order_for_the_features = "";
-
-                for (int tt = 0; tt < features.size(); tt++)
-                    for (int t = 0; t < testdata.numAttributes(); t++)
-                        if (features.get(tt).equals(testdata.attribute(t).name()))
-                            order_for_the_features += (t + 1) + ",";
-                order_for_the_features += testdata.numAttributes(); // to remove the column containing protocol names in the instance
-
-                Remove r = new Remove();
-                r.setAttributeIndices(order_for_the_features);
-                r.setInvertSelection(true);
-                r.setInputFormat(testdata);
-                Instances testdata2 = Filter.useFilter(testdata, r);
-                testdata2.setClassIndex(testdata2.numAttributes() - 1); // set class indices for test data
+                // Project the packet on the features of the model (the projection is computed once per protocol)
+                ModelProjection projection = getProjection(protocol_to_test.protocol_used_to_test_instance, header, feature_orders);
+                Instance projected_packet = projection.project(packet);
 
 //                if (verbose) {
 //                    System.out.println("\t\t\t\tSorted features according to the model:");
@@ -213,143 +254,284 @@ System.exit(0);
 //                    for (int tt = 0; tt < testdata2.numAttributes(); tt++)
 //                        System.out.println(testdata2.attribute(tt).name());
 
-                // classify packet
+                // queue packet for classification
                 StringDouble temp = new StringDouble();
                 temp.protocol_used_to_test_instance = protocol_to_test.protocol_used_to_test_instance; // set the protocol name used to classify this packet
                 temp.weight = protocol_to_test.weight; // set the weight for the protocol used to classify this packet
-                temp.predicted_label = (int) model.classifyInstance(testdata2.instance(i)); // set the predicted result
-                packet_labels.add(temp);
+                queued.add(temp); // the predicted result is set when the batch is classified
+                queued_classes.add(actual_class);
+
+                Classifier batch_model = model;
+                batches.computeIfAbsent(temp.protocol_used_to_test_instance, name -> new ModelBatch(batch_model, projection)).add(projected_packet, temp);
+
+                if (queued.size() == BATCH_SIZE)
+                    classify_batches(batches, executor, verbose, classes, queued, queued_classes, packet_labels);
+            }
+
+            classify_batches(batches, executor, verbose, classes, queued, queued_classes, packet_labels);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            executor.shutdown();
+        }
 
-                if (verbose) {
-                    System.out.println("Packet: (" + temp.protocol_used_to_test_instance + ") " + testdata2.instance(i).toString());
+        System.out.println("No. of original packets: " + no_of_packets);
+        System.out.println("No. of packets for the selected class: " + no_of_selected_packets);
+        System.out.println();
+
+        return packet_labels;
+    }
+
+    // Classify the queued packets (the batches of the different models are classified in parallel) and add them to packet_labels
+    private void classify_batches(LinkedHashMap<String, ModelBatch> batches, ExecutorService executor, boolean verbose, String[] classes, ArrayList<StringDouble> queued, ArrayList<Integer> queued_classes, ArrayList<ArrayList<StringDouble>> packet_labels) throws Exception {
+        ArrayList<Future<?>> results = new ArrayList<>();
+        for (ModelBatch batch : batches.values())
+            results.add(executor.submit(() -> {
+                batch.classify();
+                return null;
+            }));
+
+        for (Future<?> result : results)
+            result.get();
+
+        if (verbose) {
+            for (ModelBatch batch : batches.values()) {
+                for (int i = 0; i < batch.size(); i++) {
+                    StringDouble temp = batch.getLabel(i);
+                    System.out.println("Packet: (" + temp.protocol_used_to_test_instance + ") " + batch.getPacket(i).toString());
                     System.out.println(temp.protocol_used_to_test_instance);
                     System.out.println(temp.weight);
                     System.out.println("Predicted: " + classes[temp.predicted_label]);
                     System.out.println();
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
-        return packet_labels;
+        for (int i = 0; i < queued.size(); i++)
+            packet_labels.get(queued_classes.get(i)).add(queued.get(i));
+
+        batches.clear();
+        queued.clear();
+        queued_classes.clear();
+    }
+
+    // Returns the known protocol (with its weight) used to test a packet, given its frame.protocols field (null if none matches)
+    // Among the known protocols whose last part occurs in the packet (e.g. ssl -> ssl OR ip_tcp_ssl, both are OK),
+    // the one with the highest weight is used, the first one found (in the order of the packet protocols, then the config file) on a tie
+    public StringDouble getRoute(String frame_protocols, ArrayList<ProtocolWeight> protocol_weights) {
+        if (routes.containsKey(frame_protocols))
+            return routes.get(frame_protocols);
+
+        if (routing_table == null) {
+            routing_table = new HashMap<>();
+            for (ProtocolWeight known : protocol_weights) { // for each known protocol
+                String[] parts = known.name.split("_");
+                routing_table.computeIfAbsent(parts[parts.length - 1], key -> new ArrayList<>()).add(known);
+            }
+        }
+
+        StringDouble route = null;
+        HashSet<String> considered = new HashSet<>();
+        for (String packet_protocol : frame_protocols.split(":")) { // for each protocol in the packet
+            for (ProtocolWeight known : routing_table.getOrDefault(packet_protocol, new ArrayList<>())) {
+                if (!considered.add(known.name))
+                    continue;
+
+                if (route == null || known.weight > route.weight) {
+                    route = new StringDouble();
+                    route.protocol_used_to_test_instance = known.name;
+                    route.weight = known.weight;
+                }
+            }
+        }
+
+        routes.put(frame_protocols, route);
+        return route;
+    }
+
+    // Returns the model of a protocol, each model is read from the disk once and kept in memory
+    public Classifier getModel(String path, String protocol, boolean verbose) throws Exception {
+        Classifier model = models.get(protocol);
+
+        if (model == null) {
+            // the path to the protocol's model
+            String model_path = path + protocol + "/model";
+
+            // check if model exists
+            File f = new File(model_path);
+            if (!f.exists()) {
+                System.out.println("Model " + model_path + " doesn't exist!");
+                System.exit(0);
+            }
+
+            if (verbose)
+                System.out.println("Model path: " + model_path);
+
+            // load the model
+            model = (Classifier) weka.core.SerializationHelper.read(model_path);
+            models.put(protocol, model);
+        }
+
+        return model;
     }
 
-    public void analyze_group(int group, boolean verbose, ArrayList<StringDouble> packet_labels2, int actual_class, int no_of_classes, double threshold_group) {
+    // Returns the projection of the packets on the features of a protocol's model
+    public ModelProjection getProjection(String protocol, Instances header, ArrayList<FeatureOrder> feature_orders) {
+        ModelProjection projection = projections.get(protocol);
+
+        if (projection == null) {
+            // Features of the model
+            ArrayList<String> features = new ArrayList<>();
+            for (int t = 0; t < feature_orders.size(); t++) {
+                if (feature_orders.get(t).getProtocol_name().equals(protocol)) {
+                    for (int tt = 0; tt < feature_orders.get(t).getFeaturesSize(); tt++)
+                        features.add(feature_orders.get(t).getFeatures().get(tt));
+                    break;
+                }
+            }
+
+            projection = new ModelProjection(header, features);
+            projections.put(protocol, projection);
+        }
+
+        return projection;
+    }
+
+    // Slides a window of group packets over the packets above the threshold, predicting the class of each window
+    // The window keeps the no. of packets of each protocol predicted as each class: the entering packet is added,
+    // the leaving one is removed and only the weights of the classes they were predicted as are recomputed
+    // It also keeps the first packet of each (class, protocol) in the window, so the weights are summed in the same order
+    // as when the per-class protocol lists were rebuilt for each group (same floating point results, same ties)
+    // Returns the number of groups predicted as each class
+    public int[] analyze_group(int group, boolean verbose, ArrayList<StringDouble> packet_labels2, int actual_class, int no_of_classes, double threshold_group, PrintStream out) {
         // remove packets which are below the threshold and also record the unique protocols
         ArrayList<StringDouble> packet_labels = new ArrayList<>();
         HashMap<String, Double> unique_protocols = new HashMap<String, Double>();
+        HashMap<String, Integer> protocol_indices = new HashMap<>(); // protocol name -> index in the window counts
+        ArrayList<String> protocol_names = new ArrayList<>();
+        ArrayList<Double> protocol_weights = new ArrayList<>();
         for (int i = 0; i < packet_labels2.size(); i++) {
             if (packet_labels2.get(i).weight >= threshold_group) {
                 packet_labels.add(packet_labels2.get(i));
                 unique_protocols.put(packet_labels2.get(i).protocol_used_to_test_instance, packet_labels2.get(i).weight);
+
+                if (!protocol_indices.containsKey(packet_labels2.get(i).protocol_used_to_test_instance)) {
+                    protocol_indices.put(packet_labels2.get(i).protocol_used_to_test_instance, protocol_names.size());
+                    protocol_names.add(packet_labels2.get(i).protocol_used_to_test_instance);
+                    protocol_weights.add(packet_labels2.get(i).weight);
+                }
             }
         }
 
+        // class and protocol of each packet
+        int[] labels = new int[packet_labels.size()];
+        int[] protocols = new int[packet_labels.size()];
+        for (int i = 0; i < packet_labels.size(); i++) {
+            labels[i] = packet_labels.get(i).predicted_label;
+            protocols[i] = protocol_indices.get(packet_labels.get(i).protocol_used_to_test_instance);
+        }
+
+        double[] weights = new double[protocol_weights.size()];
+        for (int p = 0; p < weights.length; p++)
+            weights[p] = protocol_weights.get(p);
+
+        // next packet predicted as the same class with the same protocol (-1 if none)
+        int[] next = new int[packet_labels.size()];
+        int[][] following = new int[no_of_classes][weights.length];
+        for (int j = 0; j < no_of_classes; j++)
+            Arrays.fill(following[j], -1);
+        for (int j = packet_labels.size() - 1; j >= 0; j--) {
+            next[j] = following[labels[j]][protocols[j]];
+            following[labels[j]][protocols[j]] = j;
+        }
+
         // if packets are removed, fix the group size
         if (group > packet_labels.size())
             group = packet_labels.size();
 
-        System.out.println("Number of packets in a group: " + group);
-        System.out.println("Threshold: " + threshold_group);
-        System.out.print("Protocols: ");
+        out.println("Number of packets in a group: " + group);
+        out.println("Threshold: " + threshold_group);
+        out.print("Protocols: ");
         for (String i : unique_protocols.keySet())
-            System.out.print(i + " ");
-        System.out.println();
+            out.print(i + " ");
+        out.println();
         int correct = 0;
         int incorrect = 0;
         int total = 0;
+        int[] predictions = new int[no_of_classes];
+
+        int[][] occurrences = new int[no_of_classes][weights.length]; // class -> protocol -> no. of packets in the window
+        int[][] first = new int[no_of_classes][weights.length]; // class -> protocol -> first of these packets in the window
+        int[] order = new int[weights.length];
+        double[] final_weights_for_classes = new double[no_of_classes];
 
         // for each group of packets
         for (int i = 0; i <= (packet_labels.size() - group); i++) { // for each group
-            // Initialize the array which will contain the protocols and their occurrences for each class
-            ArrayList<ArrayList<ProtocolWeight>> weights_for_classes = new ArrayList<>();  // # of classes -> # of protocols
-            for (int j = 0; j < no_of_classes; j++) { // for as many as the number of classes
-                ArrayList<ProtocolWeight> temp = new ArrayList<>();
-                weights_for_classes.add(temp);
+            if (i == 0) { // first window
+                for (int j = 0; j < group; j++)
+                    if (occurrences[labels[j]][protocols[j]]++ == 0)
+                        first[labels[j]][protocols[j]] = j;
+                for (int j = 0; j < no_of_classes; j++)
+                    final_weights_for_classes[j] = getClassWeight(occurrences[j], first[j], weights, order);
             }
+            else if (group > 0) { // slide the window by one packet
+                int leaving = i - 1;
+                int entering = i + group - 1;
 
-            if (verbose)
-                System.out.println("Group: [" + i + "," + (i + group - 1) + "]");
-
-            for (int j = i; j < (i + group); j++) { // for each packet
-                if (verbose)
-                    System.out.println("\tPacket: " + j);
-
-                // predict the packet with the model
-                int result = packet_labels.get(j).predicted_label;
-                if (verbose)
-                    System.out.println("\t\t\tPredicted class label: " + result);
-
-                // check if the current protocol has been added to the array for the class that it was classified for
-                boolean found = false;
-                for (int t = 0; t < weights_for_classes.get(result).size(); t++) {
-                    if (weights_for_classes.get(result).get(t).name.equals(packet_labels.get(j).protocol_used_to_test_instance)) {
-                        weights_for_classes.get(result).get(t).occurrence++;
-                        found = true;
-                    }
-                }
-
-                if (!found) { // if not, add it
-                    ProtocolWeight temp = new ProtocolWeight();
-                    temp.occurrence = 1;
-                    temp.name = packet_labels.get(j).protocol_used_to_test_instance;
-                    temp.weight = packet_labels.get(j).weight;
-                    weights_for_classes.get(result).add(temp);
-                }
+                if (--occurrences[labels[leaving]][protocols[leaving]] > 0)
+                    first[labels[leaving]][protocols[leaving]] = next[leaving];
+                if (occurrences[labels[entering]][protocols[entering]]++ == 0)
+                    first[labels[entering]][protocols[entering]] = entering;
 
-                if (verbose)
-                    System.out.println("\t\t\tActual class label: " + actual_class);
+                final_weights_for_classes[labels[leaving]] = getClassWeight(occurrences[labels[leaving]], first[labels[leaving]], weights, order);
+                final_weights_for_classes[labels[entering]] = getClassWeight(occurrences[labels[entering]], first[labels[entering]], weights, order);
             }
 
             if (verbose) {
-                System.out.println();
-                System.out.println("\tDistribution:");
-
-                for (int j = 0; j < weights_for_classes.size(); j++) { // for each class
-                    System.out.println("\t\tClass: " + j);
-                    for (int l = 0; l < weights_for_classes.get(j).size(); l++) { // for each protocol
-                        System.out.println("\t\t\tProtocol: " + weights_for_classes.get(j).get(l).name);
-                        System.out.println("\t\t\t\tWeight: " + weights_for_classes.get(j).get(l).weight);
-                        System.out.println("\t\t\t\tOccurrence: " + weights_for_classes.get(j).get(l).occurrence);
-                    }
-                }
-                System.out.println();
-            }
-
-            // decision making part
-            ArrayList<Double> final_weights_for_classes = new ArrayList<>();
-
-            for (int j = 0; j < weights_for_classes.size(); j++) { // for each class
-                double overall_result = 0.0;
+                out.println("Group: [" + i + "," + (i + group - 1) + "]");
 
-                for (int l = 0; l < weights_for_classes.get(j).size(); l++) { // for each protocol
-                    double result = weights_for_classes.get(j).get(l).weight * weights_for_classes.get(j).get(l).occurrence;
-                    overall_result += result;
+                for (int j = i; j < (i + group); j++) { // for each packet
+                    out.println("\tPacket: " + j);
+                    out.println("\t\t\tPredicted class label: " + labels[j]);
+                    out.println("\t\t\tActual class label: " + actual_class);
                 }
 
-                final_weights_for_classes.add(overall_result);
-            }
+                out.println();
+                out.println("\tDistribution:");
+
+                for (int j = 0; j < no_of_classes; j++) { // for each class
+                    out.println("\t\tClass: " + j);
+                    HashSet<Integer> printed = new HashSet<>();
+                    for (int l = i; l < (i + group); l++) { // for each protocol (in the order of the packets of the group)
+                        if (labels[l] != j || !printed.add(protocols[l]))
+                            continue;
+                        out.println("\t\t\tProtocol: " + protocol_names.get(protocols[l]));
+                        out.println("\t\t\t\tWeight: " + weights[protocols[l]]);
+                        out.println("\t\t\t\tOccurrence: " + occurrences[j][protocols[l]]);
+                    }
+                }
+                out.println();
 
-            if (verbose) {
-                System.out.println();
-                System.out.println("\tWeights:");
+                out.println();
+                out.println("\tWeights:");
 
-                for (int j = 0; j < final_weights_for_classes.size(); j++) // for each class
-                    System.out.println("\t\t" + j + ": " + final_weights_for_classes.get(j));
+                for (int j = 0; j < no_of_classes; j++) // for each class
+                    out.println("\t\t" + j + ": " + final_weights_for_classes[j]);
             }
 
+            // decision making part
             int predicted_class = 0;
-            for (int j = 0; j < final_weights_for_classes.size(); j++)
-                if (final_weights_for_classes.get(j) > final_weights_for_classes.get(predicted_class))
+            for (int j = 0; j < no_of_classes; j++)
+                if (final_weights_for_classes[j] > final_weights_for_classes[predicted_class])
                     predicted_class = j;
 
             if (verbose) {
-                System.out.println();
-                System.out.println("\tPredicted class is: " + predicted_class);
-                System.out.println();
+                out.println();
+                out.println("\tPredicted class is: " + predicted_class);
+                out.println();
             }
 
+            predictions[predicted_class]++;
             if (actual_class == predicted_class)
                 correct++;
             else
@@ -357,11 +539,34 @@ System.exit(0);
             total++;
         }
 
-        System.out.println("Correct: " + correct);
-        System.out.println("Incorrect: " + incorrect);
-        System.out.println("Total: " + total);
-        System.out.println("Rate: " + (correct / (double) total) * 100);
-        System.out.println();
+        out.println("Correct: " + correct);
+        out.println("Incorrect: " + incorrect);
+        out.println("Total: " + total);
+        out.println("Rate: " + (correct / (double) total) * 100);
+        out.println();
+
+        return predictions;
+    }
+
+    // Weight of a class in a window: weight * occurrence of its protocols, added in the order they first appear in the window
+    private static double getClassWeight(int[] occurrences, int[] first, double[] weights, int[] order) {
+        int no_of_protocols = 0;
+        for (int l = 0; l < weights.length; l++) { // for each protocol in the window (insertion sort by first appearance)
+            if (occurrences[l] == 0)
+                continue;
+
+            int t = no_of_protocols++;
+            while (t > 0 && first[order[t - 1]] > first[l]) {
+                order[t] = order[t - 1];
+                t--;
+            }
+            order[t] = l;
+        }
+
+        double overall_result = 0.0;
+        for (int t = 0; t < no_of_protocols; t++)
+            overall_result += weights[order[t]] * occurrences[order[t]];
+        return overall_result;
     }
 
     public void analyze_unique_protocol_packets(boolean verbose, ArrayList<StringDouble> packet_labels2, int actual_class, int no_of_classes, double threshold_group) {
@@ -524,6 +729,90 @@ System.exit(0);
 //    }
 }
 
+// Columns of the test data used by a model: the attributes named as its features (in the order of the test data) and the class
+class ModelProjection {
+    private int[] columns;
+    private Instances projected_header;
+
+    ModelProjection(Instances header, ArrayList<String> features) {
+        HashSet<String> feature_names = new HashSet<>(features);
+
+        ArrayList<Integer> kept = new ArrayList<>();
+        for (int t = 0; t < header.numAttributes() - 1; t++)
+            if (feature_names.contains(header.attribute(t).name()))
+                kept.add(t);
+        kept.add(header.numAttributes() - 1); // class
+
+        columns = new int[kept.size()];
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int t = 0; t < columns.length; t++) {
+            columns[t] = kept.get(t);
+            attributes.add((Attribute) header.attribute(columns[t]).copy());
+        }
+
+        projected_header = new Instances(header.relationName(), attributes, 0);
+        projected_header.setClassIndex(columns.length - 1);
+    }
+
+    Instance project(Instance packet) {
+        double[] values = new double[columns.length];
+        for (int t = 0; t < columns.length; t++)
+            values[t] = packet.value(columns[t]);
+
+        Instance result = new DenseInstance(packet.weight(), values);
+        result.setDataset(projected_header);
+        return result;
+    }
+
+    // Empty data with the projected attributes
+    Instances newBatch() {
+        return new Instances(projected_header, 0);
+    }
+}
+
+// Packets routed to a model, waiting to be classified
+class ModelBatch {
+    private Classifier model;
+    private Instances packets;
+    private ArrayList<StringDouble> labels = new ArrayList<>();
+
+    ModelBatch(Classifier model, ModelProjection projection) {
+        this.model = model;
+        this.packets = projection.newBatch();
+    }
+
+    void add(Instance packet, StringDouble label) {
+        packets.add(packet);
+        labels.add(label);
+    }
+
+    int size() {
+        return labels.size();
+    }
+
+    Instance getPacket(int i) {
+        return packets.instance(i);
+    }
+
+    StringDouble getLabel(int i) {
+        return labels.get(i);
+    }
+
+    // Set the predicted labels, with one call for the whole batch if the model predicts batches more efficiently
+    void classify() throws Exception {
+        if (model instanceof BatchPredictor && ((BatchPredictor) model).implementsMoreEfficientBatchPrediction()) {
+            double[][] distributions = ((BatchPredictor) model).distributionsForInstances(packets);
+
+            for (int i = 0; i < labels.size(); i++) // same label as classifyInstance: the most probable class (missing -> 0 if none)
+                labels.get(i).predicted_label = Utils.sum(distributions[i]) == 0 ? (int) Utils.missingValue() : Utils.maxIndex(distributions[i]);
+        }
+        else {
+            for (int i = 0; i < labels.size(); i++)
+                labels.get(i).predicted_label = (int) model.classifyInstance(packets.instance(i));
+        }
+    }
+}
+
 class StringDouble {
     String protocol_used_to_test_instance = "";
     double weight = 0.0;
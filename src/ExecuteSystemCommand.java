@@ -1,36 +1,152 @@
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 public class ExecuteSystemCommand {
+    private static final int STDERR_LINES_KEPT = 20; // last lines of stderr printed when a command fails
+    private long timeout_seconds = 24 * 60 * 60; // a command running longer than this is killed
+
+    public ExecuteSystemCommand() {
+    }
+
+    public ExecuteSystemCommand(long timeout_seconds) {
+        this.timeout_seconds = timeout_seconds;
+    }
+
     public ArrayList<String> execute(String cmdLine, boolean parse) {
         ArrayList<String> output = new ArrayList<>();
-        String line;
+        execute(cmdLine, parse, line -> output.add(line));
+        return output;
+    }
+
+    // Pass the output of a command to consumer line by line, the command is stopped as soon as consumer returns false
+    public boolean execute(String cmdLine, Predicate<String> consumer) {
+        return execute(cmdLine, false, consumer);
+    }
+
+    // Stream the output of a command to consumer line by line (parsed if needed), without keeping it in memory
+    // stderr is drained concurrently so the command never blocks on a full pipe
+    // Returns false if the command could not be run, was killed by the timeout or exited with an error
+    public boolean execute(String cmdLine, boolean parse, Predicate<String> consumer) {
+        Process p;
         try {
-            Process p = Runtime.getRuntime().exec(cmdLine);
-            BufferedReader input = new BufferedReader(new InputStreamReader(p.getInputStream()));
-            while ((line = input.readLine()) != null) {
-                if (!parse)
-                    output.add(line);
-                else {
-                    if (line.trim().length() == 0)
-                        output.add("?");
-                    else {
-                        if (line.contains(","))
-                            line = line.split(",")[0];
-
-                        if (line.contains("0x"))
-                            line = line.split("x")[1];
-
-                        output.add(line);
+            p = Runtime.getRuntime().exec(cmdLine);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return false;
+        }
+
+        // Drain stderr, keeping its last lines for the error message
+        ArrayDeque<String> errors = new ArrayDeque<>();
+        Thread stderr = new Thread(() -> {
+            try (BufferedReader error = new BufferedReader(new InputStreamReader(p.getErrorStream()))) {
+                String line;
+                while ((line = error.readLine()) != null) {
+                    synchronized (errors) {
+                        if (errors.size() == STDERR_LINES_KEPT)
+                            errors.removeFirst();
+                        errors.addLast(line);
                     }
                 }
+            } catch (Exception ex) {
+                // stream closed when the process is killed
+            }
+        });
+        stderr.setDaemon(true);
+        stderr.start();
+
+        // Kill the command if it runs too long
+        AtomicBoolean timed_out = new AtomicBoolean(false);
+        Thread watchdog = new Thread(() -> {
+            try {
+                if (!p.waitFor(timeout_seconds, TimeUnit.SECONDS)) {
+                    timed_out.set(true);
+                    p.destroyForcibly();
+                }
+            } catch (InterruptedException ex) {
+                // command finished
             }
+        });
+        watchdog.setDaemon(true);
+        watchdog.start();
 
-            input.close();
+        boolean stopped = false;
+        try (BufferedReader input = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (!consumer.test(parse ? parse(line) : line)) {
+                    stopped = true;
+                    p.destroy();
+                    break;
+                }
+            }
         } catch (Exception ex) {
             ex.printStackTrace();
+            p.destroyForcibly();
         }
-        return output;
+
+        // Reap the process
+        int exit_value;
+        try {
+            exit_value = p.waitFor();
+            stderr.join();
+            watchdog.interrupt();
+            watchdog.join(); // the watchdog is done with timed_out
+        } catch (InterruptedException ex) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (stopped) // stopped on purpose, the exit value doesn't matter
+            return true;
+
+        if (timed_out.get() || exit_value != 0) {
+            System.out.println("Command " + (timed_out.get() ? "timed out" : "failed (exit value " + exit_value + ")") + ": " + cmdLine);
+            synchronized (errors) {
+                for (String line : errors)
+                    System.out.println("    " + line);
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    // Run a command printing tab separated fields (e.g. tshark -Tfields with several -e options)
+    // and return one column per field, each cell being parsed the same way as execute does
+    // Returns null if the command failed (see execute), its output being incomplete
+    public ArrayList<FeatureColumn> executeFields(String cmdLine, int no_of_fields) {
+        ArrayList<FeatureColumn> output = new ArrayList<>();
+        for (int i = 0; i < no_of_fields; i++)
+            output.add(new FeatureColumn());
+
+        boolean succeeded = execute(cmdLine, false, line -> {
+            String[] cells = line.split("\t", -1); // -1 to keep the trailing empty fields
+
+            for (int i = 0; i < no_of_fields; i++)
+                output.get(i).add(parse(i < cells.length ? cells[i] : ""));
+
+            return true;
+        });
+
+        return succeeded ? output : null;
+    }
+
+    private static String parse(String line) {
+        if (line.trim().length() == 0)
+            return "?";
+
+        if (line.contains(","))
+            line = line.split(",")[0];
+
+        if (line.contains("0x"))
+            line = line.split("x")[1];
+
+        return line;
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,5 @@
 public class ExecuteSystemCommandNoOutput {
     public void execute(String cmdLine) {
-        try {
-            Process p = Runtime.getRuntime().exec(cmdLine);
-            p.waitFor();
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
+        new ExecuteSystemCommand().execute(cmdLine, line -> true); // output is drained so the command never blocks
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Values of one extracted feature for all the packets, "?" being a missing value
+// Values are dictionary coded while the column is built, pack() turns the column into doubles if all the values are numbers
+// written the way they would be printed back, so the values written out are always the extracted strings
+public class FeatureColumn {
+    private int size = 0;
+    private BitSet missing = new BitSet();
+
+    // dictionary coded values
+    private int[] codes = new int[16];
+    private ArrayList<String> dictionary = new ArrayList<>();
+    private HashMap<String, Integer> dictionary_index = new HashMap<>();
+
+    // numeric values (after pack)
+    private double[] numbers = null;
+    private boolean packed = false;
+
+    public static FeatureColumn of(List<String> values) {
+        FeatureColumn column = new FeatureColumn();
+        for (String value : values)
+            column.add(value);
+        return column;
+    }
+
+    // Column holding the same value for all the packets
+    public static FeatureColumn constant(String value, int size) {
+        FeatureColumn column = new FeatureColumn();
+        column.codes = new int[Math.max(size, 1)];
+        for (int i = 0; i < size; i++)
+            column.add(value);
+        return column;
+    }
+
+    public void add(String value) {
+        if (packed)
+            throw new IllegalStateException("Column is packed");
+
+        if (size == codes.length)
+            codes = Arrays.copyOf(codes, codes.length * 2);
+
+        if (value.equals("?"))
+            missing.set(size);
+        else {
+            Integer code = dictionary_index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                dictionary_index.put(value, code);
+            }
+            codes[size] = code;
+        }
+
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNumeric() {
+        return numbers != null;
+    }
+
+    public boolean isMissing(int row) {
+        return missing.get(row);
+    }
+
+    public double getNumber(int row) {
+        if (missing.get(row))
+            return Double.NaN;
+        if (numbers != null)
+            return numbers[row];
+        return Double.parseDouble(dictionary.get(codes[row]));
+    }
+
+    public String get(int row) {
+        if (missing.get(row))
+            return "?";
+        if (numbers != null)
+            return format(numbers[row]);
+        return dictionary.get(codes[row]);
+    }
+
+    // Append the value of a row to a record being written, without creating a string for numeric values
+    public void append(StringBuilder record, int row) {
+        if (missing.get(row))
+            record.append('?');
+        else if (numbers != null)
+            format(record, numbers[row]);
+        else
+            record.append(dictionary.get(codes[row]));
+    }
+
+    // Set all the values to missing
+    public void clear() {
+        missing.set(0, size);
+    }
+
+    // New column where every distinct value is replaced by function(value), computed once per distinct value
+    public FeatureColumn map(UnaryOperator<String> function) {
+        if (packed)
+            throw new IllegalStateException("Column is packed");
+
+        FeatureColumn result = new FeatureColumn();
+        result.codes = new int[Math.max(size, 1)];
+
+        int[] mapped_codes = new int[dictionary.size()];
+        BitSet mapped_missing = new BitSet();
+        for (int code = 0; code < dictionary.size(); code++) { // for each distinct value
+            String value = function.apply(dictionary.get(code));
+
+            if (value.equals("?"))
+                mapped_missing.set(code);
+            else {
+                Integer mapped = result.dictionary_index.get(value);
+                if (mapped == null) {
+                    mapped = result.dictionary.size();
+                    result.dictionary.add(value);
+                    result.dictionary_index.put(value, mapped);
+                }
+                mapped_codes[code] = mapped;
+            }
+        }
+
+        for (int i = 0; i < size; i++) { // for each row
+            if (isMissing(i) || mapped_missing.get(codes[i]))
+                result.missing.set(i);
+            else
+                result.codes[i] = mapped_codes[codes[i]];
+        }
+        result.size = size;
+
+        return result;
+    }
+
+    // Store the values as doubles if they are all numbers printed back unchanged (e.g. "1.0" or hex digits such as "1f" stay strings)
+    // The arff writer decides the attribute types from the written strings, as CSVLoader would
+    public void pack() {
+        if (packed)
+            return;
+        packed = true;
+        dictionary_index = null;
+
+        double[] values = new double[dictionary.size()];
+        try {
+            for (int code = 0; code < dictionary.size(); code++) {
+                values[code] = Double.parseDouble(dictionary.get(code));
+                if (!format(values[code]).equals(dictionary.get(code)))
+                    throw new NumberFormatException(dictionary.get(code));
+            }
+        } catch (NumberFormatException e) {
+            codes = Arrays.copyOf(codes, Math.max(size, 1)); // keep the codes and the original strings
+            return;
+        }
+
+        numbers = new double[size];
+        for (int i = 0; i < size; i++)
+            numbers[i] = missing.get(i) ? Double.NaN : values[codes[i]];
+
+        codes = null;
+        dictionary = null;
+    }
+
+    // Keep only the rows set in keep (in place)
+    public void compact(BitSet keep) {
+        BitSet kept_missing = new BitSet();
+
+        int pos = 0;
+        for (int i = keep.nextSetBit(0); i >= 0 && i < size; i = keep.nextSetBit(i+1)) { // for each row to keep
+            if (missing.get(i))
+                kept_missing.set(pos);
+            else if (numbers != null)
+                numbers[pos] = numbers[i];
+            else
+                codes[pos] = codes[i];
+            pos++;
+        }
+
+        size = pos;
+        missing = kept_missing;
+    }
+
+    // Integral values are written without decimals
+    private static String format(double value) {
+        return format(new StringBuilder(), value).toString();
+    }
+
+    private static StringBuilder format(StringBuilder result, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return result.append((long) value);
+        return result.append(value);
+    }
+}
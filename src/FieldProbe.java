@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Finds the tshark fields which are non-null in the training pcaps
+// Every pcap is decoded once for a whole batch of fields instead of once per field
+public class FieldProbe {
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_GREEN = "\u001B[32m";
+    private static final String ANSI_BLUE = "\u001B[34m";
+    private static final int FIELDS_PER_RUN = 256; // keeps the tshark command line short
+
+    // Returns the lines of fields (e.g. "ip.ttl" or "ip.id,hexadecimal") which are non-null, in their original order
+    public static ArrayList<String> findNonNullFields(String protocolToFilter, ArrayList<String> fields, ArrayList<String> pcap_files, int max_threads, boolean useStreamFeatures) {
+        HashSet<String> known_fields = getTsharkFields();
+
+        // Fields to be probed (unknown fields are never printed by tshark, they would fail the whole run)
+        ArrayList<Integer> probed = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i).split(",")[0];
+
+            if (!fields.get(i).split("_")[0].equals("stream") && (known_fields.isEmpty() || known_fields.contains(field)))
+                probed.add(i);
+        }
+
+        // Probe every batch of fields on every pcap
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, max_threads));
+        ArrayList<Future<FieldState[]>> runs = new ArrayList<>();
+
+        for (String pcap_file : pcap_files) { // for each pcap
+            for (int start = 0; start < probed.size(); start += FIELDS_PER_RUN) { // for each batch of fields
+                List<Integer> batch = probed.subList(start, Math.min(start + FIELDS_PER_RUN, probed.size()));
+                runs.add(executor.submit(() -> probe(protocolToFilter, fields, batch, pcap_file)));
+            }
+        }
+
+        FieldState[] states = new FieldState[fields.size()];
+        for (int i : probed)
+            states[i] = new FieldState(fields.get(i).split(",").length > 1);
+
+        // Merge the values found in the pcaps (in pcap order, as if their outputs were concatenated)
+        int run = 0;
+        for (String pcap_file : pcap_files) { // for each pcap
+            for (int start = 0; start < probed.size(); start += FIELDS_PER_RUN) { // for each batch of fields
+                try {
+                    FieldState[] batch_states = runs.get(run++).get();
+
+                    for (int j = 0; j < batch_states.length; j++)
+                        states[probed.get(start + j)].merge(batch_states[j]);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+
+            System.out.println(ANSI_BLUE + "Pcap: " + ANSI_GREEN + pcap_file + ANSI_BLUE + " (" + run + "/" + runs.size() + ")" + ANSI_RESET);
+        }
+
+        executor.shutdown();
+
+        ArrayList<String> non_null_fields = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).split("_")[0].equals("stream")) {
+                if (useStreamFeatures)
+                    non_null_fields.add(fields.get(i));
+            }
+            else if (states[i] != null && states[i].isNonNull())
+                non_null_fields.add(fields.get(i));
+        }
+
+        return non_null_fields;
+    }
+
+    // Decode a pcap once for a batch of fields, tshark is stopped as soon as all the fields are decided
+    private static FieldState[] probe(String protocolToFilter, ArrayList<String> fields, List<Integer> batch, String pcap_file) {
+        FieldState[] states = new FieldState[batch.size()];
+
+        String command = "tshark -n -r " + pcap_file + " -Tfields";
+        for (int j = 0; j < batch.size(); j++) {
+            states[j] = new FieldState(fields.get(batch.get(j)).split(",").length > 1);
+            command += " -e " + fields.get(batch.get(j)).split(",")[0];
+        }
+        if (protocolToFilter != null)
+            command += " -Y " + protocolToFilter;
+
+        int[] undecided = {states.length};
+        new ExecuteSystemCommand().execute(command, line -> {
+            String[] cells = line.split("\t", -1); // -1 to keep the trailing empty fields
+
+            for (int j = 0; j < states.length; j++) {
+                if (!states[j].isDecided()) {
+                    states[j].add(j < cells.length ? cells[j] : "");
+
+                    if (states[j].isDecided())
+                        undecided[0]--;
+                }
+            }
+
+            return undecided[0] > 0;
+        });
+
+        return states;
+    }
+
+    // Names of the fields and protocols tshark knows
+    private static HashSet<String> getTsharkFields() {
+        HashSet<String> known_fields = new HashSet<>();
+
+        new ExecuteSystemCommand().execute("tshark -G fields", line -> {
+            String[] tokens = line.split("\t");
+            if (tokens.length > 2 && (tokens[0].equals("F") || tokens[0].equals("P")))
+                known_fields.add(tokens[2]);
+            return true;
+        });
+
+        return known_fields;
+    }
+}
+
+// Summary of the values of a field, enough to tell whether it is non-null
+class FieldState {
+    private boolean hexadecimal;
+    private String first = null; // first value seen
+    private boolean multiple = false; // more than one distinct value seen
+    private boolean ignore = false; // a value contains ':' or more than one '.'
+
+    FieldState(boolean hexadecimal) {
+        this.hexadecimal = hexadecimal;
+    }
+
+    void add(String value) {
+        if (first == null)
+            first = value;
+        else if (!multiple && !first.equals(value))
+            multiple = true;
+
+        if (!hexadecimal && (value.contains(":") || (value.length() - value.replace(".", "").length()) > 1))
+            ignore = true;
+    }
+
+    void merge(FieldState other) {
+        if (other.first == null)
+            return;
+
+        if (first == null)
+            first = other.first;
+        else if (!first.equals(other.first))
+            multiple = true;
+
+        multiple |= other.multiple;
+        ignore |= other.ignore;
+    }
+
+    // Nothing more can change the result
+    boolean isDecided() {
+        return hexadecimal ? multiple : ignore;
+    }
+
+    boolean isNonNull() {
+        return multiple && (hexadecimal || !ignore);
+    }
+}
@@ -1,5 +1,6 @@
 import java.io.*;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 public class GA {
     public static final String ANSI_RESET = "\u001B[0m";
@@ -13,57 +14,65 @@ public class GA {
     public static final String ANSI_WHITE = "\u001B[37m";
 
     public void execute(String filename, int population_size, String selected_features_file_path, GAParameters gaParameters) {
-        // Create an initial population
-        GAPopulation myPop = new GAPopulation(population_size, true, gaParameters);
-        ArrayList<String> solutions = new ArrayList<>();
-        String solution;
+        // Create the work-stealing pool used for calculating the fitness of individuals
+        gaParameters.evaluator = new ForkJoinPool(gaParameters.max_threads);
 
+        GAChromosomeKey solution;
         int noOfFeatures = gaParameters.no_of_features;
 
-        while (true) {
-            GAIndividual fittest = myPop.getFittest();
-            solution = fittest.toString();
-
-            // Add the solution to the arraylist
-            solutions.add(solution);
-
-            // Print the solution
-            int no_of_selected = 0;
-            System.out.print(ANSI_RED + "Solution: " + ANSI_RESET);
-            String[] tokens = solution.split("");
-
-            // print bits in color
-            for (int i = 0; i < noOfFeatures; i++) {
-                if (tokens[i].equals("0"))
-                    System.out.print(ANSI_CYAN + tokens[i] + ANSI_RESET);
-                else {
-                    no_of_selected++;
-                    System.out.print(ANSI_BLUE + tokens[i] + ANSI_RESET);
+        try {
+            // Create an initial population
+            GAPopulation myPop = new GAPopulation(population_size, true, gaParameters);
+            ArrayList<GAChromosomeKey> solutions = new ArrayList<>();
+
+            while (true) {
+                GAIndividual fittest = myPop.getFittest();
+                solution = fittest.getKey();
+
+                // Add the solution to the arraylist
+                solutions.add(solution);
+
+                // Print the solution
+                int no_of_selected = 0;
+                System.out.print(ANSI_RED + "Solution: " + ANSI_RESET);
+
+                // print bits in color
+                for (int i = 0; i < noOfFeatures; i++) {
+                    if (!solution.get(i))
+                        System.out.print(ANSI_CYAN + "0" + ANSI_RESET);
+                    else {
+                        no_of_selected++;
+                        System.out.print(ANSI_BLUE + "1" + ANSI_RESET);
+                    }
+                }
+                System.out.print(" ");
+                for (int i = noOfFeatures; i < noOfFeatures + gaParameters.number_of_bits_for_parameters; i++) {
+                    if (!solution.get(i))
+                        System.out.print(ANSI_CYAN + "0" + ANSI_RESET);
+                    else
+                        System.out.print(ANSI_BLUE + "1" + ANSI_RESET);
                 }
-            }
-            System.out.print(" ");
-            for (int i = noOfFeatures; i < noOfFeatures + gaParameters.number_of_bits_for_parameters; i++) {
-                if (tokens[i].equals("0"))
-                    System.out.print(ANSI_CYAN + tokens[i] + ANSI_RESET);
-                else
-                    System.out.print(ANSI_BLUE + tokens[i] + ANSI_RESET);
-            }
 
-            System.out.println(" " + ANSI_RED + "(" + no_of_selected + "/" + noOfFeatures + ")" + " " + fittest.getFitness() + "%" + ANSI_RESET);
+                System.out.println(" " + ANSI_RED + "(" + no_of_selected + "/" + noOfFeatures + ")" + " " + fittest.getFitness() + "%" + ANSI_RESET);
 
-            // Check loop break condition
-            int no = 0;
-            if (solutions.size() >= gaParameters.iteration) {
-                String test = solutions.get(solutions.size() - 1);
-                for (int i = 1; i < gaParameters.iteration; i++)
-                    if (solutions.get((solutions.size() - 1) - i).equals(test))
-                        no++;
+                // Check loop break condition
+                int no = 0;
+                if (solutions.size() >= gaParameters.iteration) {
+                    GAChromosomeKey test = solutions.get(solutions.size() - 1);
+                    for (int i = 1; i < gaParameters.iteration; i++)
+                        if (solutions.get((solutions.size() - 1) - i).equals(test))
+                            no++;
 
-                if (no >= (gaParameters.iteration - 1))
-                    break;
-            }
+                    if (no >= (gaParameters.iteration - 1))
+                        break;
+                }
 
-            myPop = GAAlgorithm.evolvePopulation(myPop, gaParameters);
+                myPop = GAAlgorithm.evolvePopulation(myPop, gaParameters);
+            }
+        } finally {
+            // The pool is not reused after the run, later fitness calculations fall back to the common pool
+            gaParameters.evaluator.shutdown();
+            gaParameters.evaluator = null;
         }
 
         // Write the the chromosome to a file
@@ -74,7 +83,7 @@ public class GA {
             File file = new File(selected_features_file_path);
             BufferedWriter output_text = new BufferedWriter(new FileWriter(file, false));
 
-            output_text.write(solution);
+            output_text.write(solution.toString());
             output_text.newLine();
             output_text.flush();
 
@@ -90,13 +99,11 @@ public class GA {
         try {
             reader = new BufferedReader(new FileReader(filename));
 
-            String[] tokens = solution.split("");
-
             String line;
             int i = 0;
             while ((line = reader.readLine()) != null) {
                 if (!line.trim().isEmpty())
-                    if (tokens[i].equals("1"))
+                    if (solution.get(i))
                         System.out.println(ANSI_BLUE + line.split(",")[0] + ANSI_RESET);
                 i++;
             }
@@ -119,20 +126,17 @@ public class GA {
         System.out.println();
     }
 
-    String[] convertIndicesToParametersToBeRemovedAndToStay(String solution, int no_of_features) {
+    String[] convertIndicesToParametersToBeRemovedAndToStay(GAChromosomeKey solution, int no_of_features) {
         String[] result = {"", ""};
 
-        // Concatenate solution into a string
-        String[] tokens = solution.split("");
-
         String parameters_to_be_deleted = "";
         String parameters_to_stay = "";
         for (int i = 0; i < no_of_features; i++) {
-            if (tokens[i].equals("0")) {
+            if (!solution.get(i)) {
                 parameters_to_be_deleted += (i+1);
                 parameters_to_be_deleted += ",";
             }
-            else if (tokens[i].equals("1")) {
+            else {
                 parameters_to_stay += (i+1);
                 parameters_to_stay += ",";
             }
@@ -1,3 +1,5 @@
+import java.util.BitSet;
+
 public class GAAlgorithm {
     ///////////////////
     // GA parameters //
@@ -11,6 +13,9 @@ public class GAAlgorithm {
     public static GAPopulation evolvePopulation(GAPopulation pop, GAParameters gaParameters) {
         GAPopulation newPopulation = new GAPopulation(pop.size(), false, gaParameters);
 
+        // Score the whole generation once, selection below only compares the calculated fitness values
+        pop.evaluate();
+
         // Keep our best individual
         if (elitism)
             newPopulation.saveIndividual(0, pop.getFittest());
@@ -43,14 +48,20 @@ public class GAAlgorithm {
     ///////////////////////////
     private static GAIndividual crossover(GAIndividual indiv1, GAIndividual indiv2, GAParameters gaParameters) {
         GAIndividual newSol = new GAIndividual(gaParameters);
-        // Loop through genes
-        for (int i = 0; i < indiv1.size(); i++) {
-            // Crossover
+
+        // Genes to be taken from the first parent
+        BitSet mask = new BitSet(indiv1.size());
+        for (int i = 0; i < indiv1.size(); i++)
             if (Math.random() <= gaParameters.uniformRate)
-                newSol.setGene(i, indiv1.getGene(i));
-            else
-                newSol.setGene(i, indiv2.getGene(i));
-        }
+                mask.set(i);
+
+        // Crossover: (indiv1 AND mask) OR (indiv2 AND NOT mask)
+        BitSet genes = (BitSet) indiv2.getGenes().clone();
+        genes.andNot(mask);
+        mask.and(indiv1.getGenes());
+        genes.or(mask);
+        newSol.setGenes(genes);
+
         return newSol;
     }
 
@@ -62,8 +73,7 @@ public class GAAlgorithm {
         for (int i = 0; i < indiv.size(); i++) {
             if (Math.random() <= gaParameters.mutationRate) {
                 // Create random gene
-                byte gene = (byte) Math.round(Math.random());
-                indiv.setGene(i, gene);
+                indiv.setGene(i, Math.round(Math.random()) == 1);
             }
         }
     }
@@ -72,17 +82,16 @@ public class GAAlgorithm {
     // Select individuals for crossover //
     //////////////////////////////////////
     private static GAIndividual tournamentSelection(GAPopulation pop, GAParameters gaParameters) {
-        // Create a tournament population
-        GAPopulation tournament = new GAPopulation(gaParameters.tournamentSize, false, gaParameters);
+        GAIndividual fittest = null;
 
-        // For each place in the tournament get a random individual
+        // For each place in the tournament get a random individual and keep the fittest
         for (int i = 0; i < gaParameters.tournamentSize; i++) {
             int randomId = (int) (Math.random() * pop.size());
-            tournament.saveIndividual(i, pop.getIndividual(randomId));
-        }
+            GAIndividual candidate = pop.getIndividual(randomId);
 
-        // Get the fittest
-        GAIndividual fittest = tournament.getFittest();
+            if (fittest == null || fittest.getFitness() < candidate.getFitness())
+                fittest = candidate;
+        }
 
         return fittest;
     }
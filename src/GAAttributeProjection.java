@@ -0,0 +1,44 @@
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+// Projects instances on the features selected by a chromosome (and the class attribute)
+public class GAAttributeProjection {
+    private int[] columns; // indices of the attributes to keep, the class attribute being the last one
+
+    public GAAttributeProjection(GAIndividual individual, int no_of_features, int class_index) {
+        BitSet genes = individual.getGenes();
+        columns = new int[genes.get(0, no_of_features).cardinality() + 1];
+
+        int pos = 0;
+        for (int i = genes.nextSetBit(0); i >= 0 && i < no_of_features; i = genes.nextSetBit(i+1))
+            columns[pos++] = i;
+        columns[pos] = class_index;
+    }
+
+    // Build the projected data straight from the rows of the source, without going through the Remove filter
+    public Instances project(Instances source) {
+        ArrayList<Attribute> attributes = new ArrayList<>(columns.length);
+        for (int column : columns)
+            attributes.add((Attribute) source.attribute(column).copy());
+
+        Instances result = new Instances(source.relationName(), attributes, source.numInstances());
+        result.setClassIndex(columns.length - 1);
+
+        for (int i = 0; i < source.numInstances(); i++) { // for each row
+            Instance row = source.instance(i);
+
+            double[] values = new double[columns.length];
+            for (int j = 0; j < columns.length; j++)
+                values[j] = row.value(columns[j]);
+
+            result.add(new DenseInstance(row.weight(), values));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Immutable, bit-packed copy of a chromosome, used as the key of the fitness memo table
+public final class GAChromosomeKey {
+    private final long[] words;
+    private final int size;
+    private final int hash;
+
+    private GAChromosomeKey(long[] words, int size) {
+        this.words = words;
+        this.size = size;
+        this.hash = 31 * Arrays.hashCode(words) + size;
+    }
+
+    public static GAChromosomeKey of(BitSet genes, int size) {
+        return new GAChromosomeKey(Arrays.copyOf(genes.toLongArray(), (size + 63) >>> 6), size);
+    }
+
+    // Parse a chromosome written as a string of 0/1 characters
+    public static GAChromosomeKey of(String genes) {
+        long[] words = new long[(genes.length() + 63) >>> 6];
+        for (int i = 0; i < genes.length(); i++)
+            if (genes.charAt(i) == '1')
+                words[i >>> 6] |= 1L << i;
+
+        return new GAChromosomeKey(words, genes.length());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof GAChromosomeKey))
+            return false;
+
+        GAChromosomeKey other = (GAChromosomeKey) o;
+        return hash == other.hash && size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(size);
+        for (int i = 0; i < size; i++)
+            result.append(get(i) ? '1' : '0');
+        return result.toString();
+    }
+}
@@ -0,0 +1,40 @@
+import weka.core.Instances;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+public class GADatasetCache {
+    private Instances[] instances;
+
+    // Load every train_instance_N.arff file of the work folder once, so that fitness evaluation does not touch the disk
+    public GADatasetCache(String work_folder, int no_of_os_instances) {
+        instances = new Instances[no_of_os_instances];
+
+        for (int i = 0; i < no_of_os_instances; i++) { // for each instance
+            String filename = work_folder + "/train_instance_" + (i+1) + ".arff";
+
+            try {
+                instances[i] = BinaryDataset.load(filename);
+                instances[i].setClassIndex(instances[i].numAttributes() - 1);
+            } catch (FileNotFoundException e) {
+                System.err.println("File not found: " + filename);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            if (instances[i] == null) {
+                System.out.println("ErRoR!");
+                System.exit(0);
+            }
+        }
+    }
+
+    // Returns the (shared, read-only) data of the given instance (0-based)
+    public Instances get(int instance_no) {
+        return instances[instance_no];
+    }
+
+    public int size() {
+        return instances.length;
+    }
+}
@@ -1,117 +1,69 @@
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.Arrays;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class GAFitnessCalc {
     // Calculate individuals' fitness by comparing it to our candidate solution
     static double getFitness(GAIndividual individual, GAParameters gaParameters) {
-        // check if this gene has already been calculated before
-        synchronized (gaParameters) {
-            for (int i = 0; i < gaParameters.preCalculatedGenes.size(); i++) {
-                if (Arrays.equals(individual.getGeneArray(), gaParameters.preCalculatedGenes.get(i).genes)) {
-                    return gaParameters.preCalculatedGenes.get(i).fitness;
-                }
-            }
-        }
+        // the fitness depends on the chromosome as it is before the null features are masked
+        GAChromosomeKey key = individual.getKey();
 
         String weight_tokens[] = gaParameters.weights.split(",");
 
         ////////////////
         // Parameters //
         ////////////////
-        BufferedReader reader;
         int no_of_features = gaParameters.no_of_features;
-        int no_of_features_selected = 0;
+        int no_of_features_selected = individual.getNoOfSelectedFeatures();
         double overall_performance_sum = 0;
-        String parameters_to_be_deleted = ""; // concatenated string of features to be removed
 
         //////////////////////////////////////////////////////////////////////////////
         // Among the selected features, find the ones which contain all null values //
         // (those which appear as string in the arff file) and set them in the 'individual' to 0
         //////////////////////////////////////////////////////////////////////////////
-        for (int i = 0; i < no_of_features; i++) { // for each feature
-            if (individual.getGene(i) == 1) { // if this feature is not selected to be removed by GA
-                no_of_features_selected++;
-                int count = 0;
-                for (int j = 0; j < gaParameters.no_of_os_instances; j++) { // for each instance
-                    boolean feature_is_null = true;
-                    // check if this feature is all null (string in arff)
-                    try {
-                        reader = new BufferedReader(new FileReader(gaParameters.work_folder + "/train_instance_" + (j+1)));
-
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            if (!line.trim().isEmpty()) {
-                                String tokens[] = line.split(",");
-                                if (!(tokens[i].equals("?"))) {
-                                    feature_is_null = false;
-                                    break;
-                                }
-                            }
-                        }
-
-                        if (feature_is_null) {
-                            count++;
-                            break;
-                        }
-                    } catch (FileNotFoundException e) {
-                        e.printStackTrace();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                // if all null, then set it to be removed in the 'parameters_to_be_deleted'
-                if (count > 0)
-                    individual.setGene(i, (byte) 0);
-            }
-        }
+        individual.getGenes().andNot(gaParameters.nullFeatureIndex.getNullFeatures());
 
-        //////////////////////////////////////////////////////
-        // Check if all features are selected to be removed //
-        //////////////////////////////////////////////////////
-        int no_of_zeros_in_chromosome = 0;
-        for (int i = 0; i < no_of_features; i++) // for each feature
-            if (individual.getGene(i) == 0)
-                no_of_zeros_in_chromosome++;
+        // check if this gene has already been calculated before
+        Double preCalculatedFitness = gaParameters.preCalculatedGenes.get(key);
+        if (preCalculatedFitness != null)
+            return preCalculatedFitness;
 
         // If all features are selected to be removed, return 0's
-        if (no_of_zeros_in_chromosome == no_of_features)
+        if (individual.getNoOfSelectedFeatures() == 0)
             return 0;
 
-        // If all features are not selected to be removed
-        if (no_of_zeros_in_chromosome > 0) {
-            parameters_to_be_deleted = individual.toString();
-        }
-
         ////////////////
         // TRAIN TEST //
         ////////////////
-        for (int test_instance_no = 0; test_instance_no < gaParameters.no_of_os_instances; test_instance_no++) { // for each instance
+        // Project the instances on the selected features once, the projections are shared by all the train/test pairs
+        int no_of_os_instances = gaParameters.no_of_os_instances;
+        GAAttributeProjection projection = new GAAttributeProjection(individual, no_of_features, gaParameters.datasetCache.get(0).classIndex());
+        Instances[] instances = new Instances[no_of_os_instances];
+        for (int i = 0; i < no_of_os_instances; i++)
+            instances[i] = projection.project(gaParameters.datasetCache.get(i));
+
+        // The model of every train instance is trained once and tested on all the other instances
+        // Every train instance is a separate task, so that a single chromosome can use several threads
+        ArrayList<ForkJoinTask<double[]>> models = new ArrayList<>();
+
+        for (int train_instance_no = 0; train_instance_no < no_of_os_instances; train_instance_no++) { // for each train instance
+            int train_no = train_instance_no;
+            models.add(ForkJoinTask.adapt(() -> getTrainPerformances(train_no, instances, individual, gaParameters)));
+        }
+
+        invokeAll(models, gaParameters);
+
+        for (int test_instance_no = 0; test_instance_no < no_of_os_instances; test_instance_no++) { // for each instance
             double performance_sum = 0;
 
             // For each test instance
-            for (int train_instance_no = 0; train_instance_no < gaParameters.no_of_os_instances; train_instance_no++) {
-                if (train_instance_no != test_instance_no) {
-                    try {
-                        performance_sum += new ClassifyML().train_test(gaParameters.work_folder + "/train_instance_" + (train_instance_no+1) + ".arff",
-                                gaParameters.work_folder + "/train_instance_" + (test_instance_no+1) + ".arff",
-                                parameters_to_be_deleted,
-                                gaParameters.classifier,
-                                false,
-                                true,
-                                gaParameters,
-                                individual,
-                                "").get(0);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-
-            overall_performance_sum += performance_sum / (gaParameters.no_of_os_instances - 1);
+            for (int train_instance_no = 0; train_instance_no < no_of_os_instances; train_instance_no++)
+                if (train_instance_no != test_instance_no)
+                    performance_sum += models.get(train_instance_no).join()[test_instance_no];
+
+            overall_performance_sum += performance_sum / (no_of_os_instances - 1);
         }
 
         double result = overall_performance_sum / gaParameters.no_of_os_instances;
@@ -124,25 +76,50 @@ public class GAFitnessCalc {
         double result_to_return = classification_result + feature_result;
 
         // add the gene to precalculated set
-        synchronized (gaParameters) {
-            boolean found = false;
-            for (int i = 0; i < gaParameters.preCalculatedGenes.size(); i++) {
-                if (Arrays.equals(individual.getGeneArray(), gaParameters.preCalculatedGenes.get(i).genes)) {
-                    found = true;
-                    break;
-                }
-            }
-
-            if (!found) {
-                PreCalculatedGenes test = new PreCalculatedGenes();
-                test.genes = new byte[gaParameters.no_of_features];
-                for (int i = 0; i < gaParameters.no_of_features; i++)
-                    test.genes[i] = individual.getGeneArray()[i];
-                test.fitness = result_to_return;
-                gaParameters.preCalculatedGenes.add(test);
-            }
-        }
+        if (gaParameters.preCalculatedGenes.putIfAbsent(key, result_to_return) == null && gaParameters.fitnessStore != null)
+            gaParameters.fitnessStore.add(key, result_to_return); // persist it for the next runs
 
         return result_to_return;
     }
+
+    // Train on one instance and test on all the other ones, returns the weighted f-measure for each test instance
+    private static double[] getTrainPerformances(int train_instance_no, Instances[] instances, GAIndividual individual, GAParameters gaParameters) {
+        int no_of_os_instances = gaParameters.no_of_os_instances;
+        double[] performances = new double[no_of_os_instances];
+
+        Instances[] testdatas = new Instances[no_of_os_instances - 1];
+        int pos = 0;
+        for (int test_instance_no = 0; test_instance_no < no_of_os_instances; test_instance_no++)
+            if (test_instance_no != train_instance_no)
+                testdatas[pos++] = instances[test_instance_no];
+
+        try {
+            ArrayList<ArrayList<Double>> results = new ClassifyML().train_test(instances[train_instance_no],
+                    testdatas,
+                    gaParameters.classifier,
+                    false,
+                    true,
+                    gaParameters,
+                    individual);
+
+            pos = 0;
+            for (int test_instance_no = 0; test_instance_no < no_of_os_instances; test_instance_no++)
+                if (test_instance_no != train_instance_no)
+                    performances[test_instance_no] = results.get(pos++).get(0);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return performances;
+    }
+
+    // Run the tasks on the work-stealing pool of the GA run (a calling worker thread helps executing them)
+    private static <T> void invokeAll(ArrayList<ForkJoinTask<T>> tasks, GAParameters gaParameters) {
+        if (ForkJoinTask.inForkJoinPool())
+            ForkJoinTask.invokeAll(tasks);
+        else {
+            ForkJoinPool pool = (gaParameters.evaluator != null) ? gaParameters.evaluator : ForkJoinPool.commonPool();
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+    }
 }
@@ -0,0 +1,113 @@
+import java.io.*;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Fitness values persisted across GA runs
+// Each line holds: store version, dataset fingerprint, classifier code, weights, chromosome and fitness (tab separated)
+public class GAFitnessStore {
+    // Increase whenever the way the fitness is calculated changes, so values stored by older versions are not reused
+    private static final int VERSION = 1;
+
+    private String store_path;
+    private String prefix; // version, fingerprint, classifier and weights of the current run
+    private BufferedWriter writer;
+
+    public GAFitnessStore(String store_path, GAParameters gaParameters) {
+        this.store_path = store_path;
+        this.prefix = "v" + VERSION + "\t" + fingerprint(gaParameters.work_folder, gaParameters.no_of_os_instances) + "\t" + gaParameters.classifier + "\t" + gaParameters.weights + "\t";
+
+        try {
+            writer = new BufferedWriter(new FileWriter(store_path, true));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Load the fitness values calculated by previous runs on the same data, classifier and weights
+    public int load(Map<GAChromosomeKey, Double> preCalculatedGenes, int chromosome_size) {
+        int loaded = 0;
+
+        if (!new File(store_path).isFile())
+            return loaded;
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(store_path));
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(prefix)) {
+                    String[] tokens = line.substring(prefix.length()).split("\t");
+
+                    // skip lines with a different chromosome layout and partially written lines
+                    if (tokens.length != 2 || tokens[0].length() != chromosome_size)
+                        continue;
+
+                    try {
+                        preCalculatedGenes.putIfAbsent(GAChromosomeKey.of(tokens[0]), Double.parseDouble(tokens[1]));
+                        loaded++;
+                    } catch (NumberFormatException e) {
+                        // partially written line
+                    }
+                }
+            }
+
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return loaded;
+    }
+
+    // Append a newly calculated fitness value
+    public synchronized void add(GAChromosomeKey key, double fitness) {
+        if (writer == null)
+            return;
+
+        try {
+            writer.write(prefix + key + "\t" + fitness);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void close() {
+        if (writer == null)
+            return;
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        writer = null;
+    }
+
+    // Checksum of the train instance files, so values calculated on other data are never reused
+    public static String fingerprint(String work_folder, int no_of_os_instances) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+
+        for (int i = 0; i < no_of_os_instances; i++) { // for each instance
+            String[] filenames = {work_folder + "/train_instance_" + (i+1) + ".arff", work_folder + "/train_instance_" + (i+1) + ".null"};
+
+            for (String filename : filenames) {
+                try {
+                    InputStream in = new BufferedInputStream(new FileInputStream(filename));
+
+                    int read;
+                    while ((read = in.read(buffer)) != -1)
+                        crc.update(buffer, 0, read);
+
+                    in.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        return Long.toHexString(crc.getValue());
+    }
+}
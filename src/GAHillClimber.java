@@ -21,36 +21,29 @@ public class GAHillClimber {
 
         // Randomize
         for (int i = 0; i < no_of_features; i++)
-            test.setGene(i, (byte) new Random().nextInt(2));
+            test.setGene(i, new Random().nextBoolean());
 
         // Add the solution to the arraylist
-        solution = "";
-        for (int i = 0; i < no_of_features; i++)
-            solution += test.getGene(i);
+        solution = test.toString().substring(0, no_of_features);
         solutions.add(solution);
 
         double fitness = GAFitnessCalc.getFitness(test, gaParameters);
 
         while (true) {
             // flip bit
-            test2.setGeneArray(test.getGeneArray());
+            test2.setGenes(test.getGenes());
 
             int pos = new Random().nextInt(no_of_features);
-            if (test2.getGene(pos) == 1)
-                test2.setGene(pos, (byte) 0);
-            else
-                test2.setGene(pos, (byte) 1);
+            test2.setGene(pos, !test2.getGene(pos));
 
             double temp_fitness =  GAFitnessCalc.getFitness(test2, gaParameters);
 
             if (temp_fitness > fitness) {
                 fitness = temp_fitness;
-                test.setGeneArray(test2.getGeneArray());
+                test.setGenes(test2.getGenes());
 
                 // Add the solution to the arraylist
-                solution = "";
-                for (int i = 0; i < no_of_features; i++)
-                    solution += test.getGene(i);
+                solution = test.toString().substring(0, no_of_features);
                 solutions.add(solution);
             }
 
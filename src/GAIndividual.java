@@ -1,41 +1,76 @@
+import java.util.BitSet;
+
 public class GAIndividual {
-    private byte[] genes;
+    private BitSet genes;
+    private int size;
     private double fitness = 0;
     private boolean has_run = false;
     GAParameters gaParameters;
 
     public GAIndividual(GAParameters gaParameters) {
-        this.genes = new byte[gaParameters.no_of_features + gaParameters.number_of_bits_for_parameters];
+        this.size = gaParameters.no_of_features + gaParameters.number_of_bits_for_parameters;
+        this.genes = new BitSet(size);
         this.gaParameters = gaParameters;
     }
 
+    // Create an individual from a chromosome written as a string of 0/1 characters
+    public GAIndividual(GAParameters gaParameters, String chromosome) {
+        this(gaParameters);
+
+        for (int i = 0; i < Math.min(size, chromosome.length()); i++)
+            if (chromosome.charAt(i) == '1')
+                genes.set(i);
+    }
+
     // Create a random individual
     public void generateIndividual() {
         for (int i = 0; i < size(); i++)
-            genes[i] = (byte) Math.round(Math.random());
+            genes.set(i, Math.round(Math.random()) == 1);
     }
 
-    public byte[] getGeneArray() {
+    public BitSet getGenes() {
         return genes;
     }
 
-    public void setGeneArray(byte[] input) {
-        this.genes = input;
+    public void setGenes(BitSet input) {
+        this.genes = (BitSet) input.clone();
     }
 
-    public byte getGene(int index) {
-        return genes[index];
+    public boolean getGene(int index) {
+        return genes.get(index);
     }
 
-    public void setGene(int index, byte value) {
-        genes[index] = value;
+    public void setGene(int index, boolean value) {
+        genes.set(index, value);
     }
 
     public int size() {
-        return genes.length;
+        return size;
+    }
+
+    // Number of features selected (set bits among the feature genes)
+    public int getNoOfSelectedFeatures() {
+        return genes.get(0, gaParameters.no_of_features).cardinality();
+    }
+
+    // Value of the genes between start and end (inclusive), the first gene being the most significant bit
+    public long decode(int start, int end) {
+        long result = 0;
+        for (int i = start; i <= end; i++)
+            result = (result << 1) | (genes.get(i) ? 1 : 0);
+        return result;
+    }
+
+    // Immutable copy of the chromosome
+    public GAChromosomeKey getKey() {
+        return GAChromosomeKey.of(genes, size);
     }
 
-    public double getFitness() {
+    public synchronized boolean isEvaluated() {
+        return has_run;
+    }
+
+    public synchronized double getFitness() {
         if (!has_run) {
             fitness = GAFitnessCalc.getFitness(this, gaParameters);
             has_run = true;
@@ -43,13 +78,29 @@ public class GAIndividual {
         return fitness;
     }
 
+    @Override
+    public int hashCode() {
+        return genes.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof GAIndividual))
+            return false;
+
+        GAIndividual other = (GAIndividual) o;
+        return size == other.size && genes.equals(other.genes);
+    }
+
     @Override
     public String toString() {
-        String geneString = "";
+        StringBuilder geneString = new StringBuilder(size);
 
         for (int i = 0; i < size(); i++)
-            geneString += getGene(i);
+            geneString.append(genes.get(i) ? '1' : '0');
 
-        return geneString;
+        return geneString.toString();
     }
 }
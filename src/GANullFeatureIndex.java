@@ -0,0 +1,103 @@
+import java.io.*;
+import java.util.BitSet;
+
+public class GANullFeatureIndex {
+    private BitSet null_features = new BitSet(); // features which are all null in at least one instance
+
+    // Load the null feature bitmaps of the instances (rebuild the ones which are missing or out of date)
+    public GANullFeatureIndex(String work_folder, int no_of_os_instances, int no_of_features) {
+        for (int i = 0; i < no_of_os_instances; i++) { // for each instance
+            String instance_file = work_folder + "/train_instance_" + (i+1);
+            String index_file = instance_file + ".null";
+
+            BitSet current = null;
+            if (new File(index_file).lastModified() >= new File(instance_file).lastModified())
+                current = read(index_file, no_of_features);
+
+            if (current == null) {
+                current = build(instance_file, no_of_features);
+                write(index_file, current, no_of_features);
+            }
+
+            null_features.or(current);
+        }
+    }
+
+    // Build and persist the null feature bitmaps next to the instance files
+    public static void create(String work_folder, int no_of_os_instances, int no_of_features) {
+        for (int i = 0; i < no_of_os_instances; i++) { // for each instance
+            String instance_file = work_folder + "/train_instance_" + (i+1);
+            write(instance_file + ".null", build(instance_file, no_of_features), no_of_features);
+        }
+    }
+
+    public boolean isNull(int feature) {
+        return null_features.get(feature);
+    }
+
+    public BitSet getNullFeatures() {
+        return null_features;
+    }
+
+    // Returns the features whose values are all null ("?") in the given (csv) instance file
+    public static BitSet build(String instance_file, int no_of_features) {
+        BitSet result = new BitSet(no_of_features);
+        result.set(0, no_of_features); // all null until a value is seen
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(instance_file));
+
+            String line;
+            while ((line = reader.readLine()) != null && !result.isEmpty()) {
+                if (!line.trim().isEmpty()) {
+                    String[] tokens = line.split(",");
+                    for (int i = result.nextSetBit(0); i >= 0 && i < tokens.length; i = result.nextSetBit(i+1))
+                        if (!tokens[i].equals("?"))
+                            result.clear(i);
+                }
+            }
+
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return result;
+    }
+
+    // The bitmap is stored as a single line of 0/1 characters (1 = all null)
+    public static BitSet read(String index_file, int no_of_features) {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(index_file));
+            String line = reader.readLine();
+            reader.close();
+
+            if (line == null || line.length() != no_of_features)
+                return null;
+
+            BitSet result = new BitSet(no_of_features);
+            for (int i = 0; i < no_of_features; i++)
+                if (line.charAt(i) == '1')
+                    result.set(i);
+
+            return result;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static void write(String index_file, BitSet bitmap, int no_of_features) {
+        StringBuilder line = new StringBuilder(no_of_features);
+        for (int i = 0; i < no_of_features; i++)
+            line.append(bitmap.get(i) ? '1' : '0');
+
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(index_file, false));
+            writer.write(line.toString());
+            writer.newLine();
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,4 +1,5 @@
-import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class GAParameters {
     public String weights;
@@ -12,10 +13,9 @@ public class GAParameters {
     public double uniformRate;
     public double mutationRate;
     public int number_of_bits_for_parameters = 2;
-    public ArrayList<PreCalculatedGenes> preCalculatedGenes;
+    public ConcurrentHashMap<GAChromosomeKey, Double> preCalculatedGenes;
+    public GADatasetCache datasetCache;
+    public GANullFeatureIndex nullFeatureIndex;
+    public GAFitnessStore fitnessStore;
+    public ForkJoinPool evaluator; // work-stealing pool evaluating the individuals and their train/test pairs, alive during a GA run
 }
-
-class PreCalculatedGenes {
-    public byte[] genes;
-    public double fitness = 0;
-}
\ No newline at end of file
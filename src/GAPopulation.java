@@ -1,6 +1,7 @@
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class GAPopulation {
     GAIndividual[] individuals;
@@ -27,21 +28,30 @@ public class GAPopulation {
         return individuals[index];
     }
 
-    public GAIndividual getFittest() {
-        ArrayList<GetFitnessThread> threads = new ArrayList<>();
-        ExecutorService executor = Executors.newFixedThreadPool(gaParameters.max_threads);
-
-        for (int i = 0; i < size(); i++)
-            threads.add(new GetFitnessThread(individuals[i]));
+    // Calculate the fitness of the individuals which have not been evaluated yet, in parallel on the evaluation pool of the GA run
+    // (on the common pool outside of a GA run)
+    public void evaluate() {
+        ArrayList<Future<Double>> results = new ArrayList<>();
+        ForkJoinPool pool = (gaParameters.evaluator != null) ? gaParameters.evaluator : ForkJoinPool.commonPool();
 
         for (int i = 0; i < size(); i++)
-            executor.execute(threads.get(i)); //calling execute method of ExecutorService
-
-        executor.shutdown();
-        while (!executor.isTerminated()) {}
+            if (!individuals[i].isEvaluated())
+                results.add(pool.submit(individuals[i]::getFitness));
+
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                e.printStackTrace();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
-        for (int i = 0; i < size(); i++)
-            individuals[i] = threads.get(i).getIndividual();
+    public GAIndividual getFittest() {
+        evaluate();
 
         GAIndividual fittest = individuals[0];
 
@@ -63,28 +73,3 @@ public class GAPopulation {
         individuals[index] = indiv;
     }
 }
-
-class GetFitnessThread extends Thread {
-    private Thread t;
-    private GAIndividual current;
-
-    GetFitnessThread(GAIndividual current) {
-        this.current = current;
-    }
-
-    public void run() {
-        @SuppressWarnings("unused")
-        double temp = current.getFitness();
-    }
-
-    public GAIndividual getIndividual() {
-        return current;
-    }
-
-    public void start () {
-        if (t == null) {
-            t = new Thread (this);
-            t.start ();
-        }
-    }
-}
@@ -0,0 +1,69 @@
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffLoader;
+
+import java.io.File;
+import java.io.IOException;
+
+// Reads the rows of a dataset one at a time, so data larger than the memory can be processed
+// The binary copy of the arff file is used (memory mapped, rows decoded on demand), it is written on first use
+// (streaming over the arff file) if it is missing or out of date; the arff file is read incrementally if it can't be written
+public class InstanceSource {
+    private Instances header; // attributes, without rows (class index is the last attribute)
+    private BinaryDataset.Mapped mapped = null;
+    private ArffLoader loader = null;
+    private int position = 0;
+
+    public InstanceSource(String arff_path) throws IOException {
+        File arff = new File(arff_path);
+        File binary = new File(BinaryDataset.binaryPath(arff_path));
+
+        if (!binary.isFile() || binary.lastModified() < arff.lastModified()) {
+            try {
+                BinaryDataset.convert(arff_path);
+            } catch (IOException e) {
+                e.printStackTrace();
+                binary.delete();
+            }
+        }
+
+        if (binary.isFile() && binary.lastModified() >= arff.lastModified()) {
+            mapped = BinaryDataset.map(binary.getPath());
+            header = mapped.getHeader();
+        }
+        else {
+            loader = new ArffLoader();
+            loader.setFile(arff);
+            header = loader.getStructure();
+        }
+
+        header.setClassIndex(header.numAttributes() - 1);
+    }
+
+    public Instances getHeader() {
+        return header;
+    }
+
+    // Returns the next row (attached to the header), null at the end of the data
+    // The string values of a row read from an arff file are only valid until the next row is read
+    public Instance next() throws IOException {
+        Instance row;
+
+        if (mapped != null)
+            row = position < mapped.size() ? mapped.get(position) : null;
+        else
+            row = loader.getNextInstance(header);
+
+        if (row != null) {
+            row.setDataset(header);
+            position++;
+        }
+
+        return row;
+    }
+
+    public void close() throws IOException {
+        if (loader != null)
+            loader.reset();
+    }
+}
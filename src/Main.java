@@ -9,14 +9,11 @@ import weka.classifiers.trees.DecisionStump;
 import weka.classifiers.trees.J48;
 import weka.classifiers.trees.RandomForest;
 import weka.core.Instances;
-import weka.core.converters.ArffSaver;
-import weka.core.converters.CSVLoader;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class Main {
@@ -241,7 +238,7 @@ public class Main {
         gaParameters.tournamentSize = tournamentSize;
         gaParameters.uniformRate = uniformRate;
         gaParameters.mutationRate = mutationRate;
-        gaParameters.preCalculatedGenes = new ArrayList<>();
+        gaParameters.preCalculatedGenes = new ConcurrentHashMap<>();
 
         if (optimizeParameters) {
             if (classifier == 0)
@@ -355,7 +352,8 @@ public class Main {
                         k,
                         verbose,
                         config_path,
-                        threshold_group);
+                        threshold_group,
+                        max_threads);
                 break;
 //            case 9:
 //                extract_examples_by_first_classifier(work_folder + "/features/" + protocol + "/train_merged.arff",
@@ -743,12 +741,13 @@ public class Main {
         // Divide the genetic files
         merge_files(protocol_file_path, classes, no_of_os_instances, filename_prefix);
 
-        // Include dummy examples for classes that are missing in the *_instance_* files
-        addDummyExamplesForMissingClasses(no_of_os_instances, protocol_file_path, filename_prefix, tshark_attributes, classes);
-
-        // Populate the arff file format for the instance files
         ArrayList<String> attribute_names_edited = getAttributeLabels(tshark_attributes);
 
+        // Include dummy examples for classes that are missing in the *_instance_* files
+        // (they give the class attributes the same values, in the same order, as before; being null records they are not written)
+        addDummyExamplesForMissingClasses(no_of_os_instances, protocol_file_path, filename_prefix, attribute_names_edited.size(), classes);
+
+        // Populate the arff file format for the instance files (null records are left out)
         for (int i = 0; i < no_of_os_instances; i++)
             convertToArff(protocol_file_path + "/" + filename_prefix + "_instance_" + (i + 1), attribute_names_edited);
 
@@ -758,19 +757,9 @@ public class Main {
             convertToArff(protocol_file_path + "/" + filename_prefix + "_merged", attribute_names_edited);
         }
 
-        // Remove the dummy files from .arff files
-        for (int i = 0; i < no_of_os_instances; i++) {
-            removeDummyExamples(protocol_file_path + "/" + filename_prefix + "_instance_" + (i + 1) + ".arff",
-                    protocol_file_path + "/" + filename_prefix + "_instance_" + (i + 1) + ".arff_2",
-                    tshark_attributes);
-        }
-
-        // Remove the dummy files from train_merged .arff file
-        if (filename_prefix.equals("train")) {
-            removeDummyExamples(protocol_file_path + "/" + filename_prefix + "_merged.arff",
-                    protocol_file_path + "/" + filename_prefix + "_merged.arff_2",
-                    tshark_attributes);
-        }
+        // Record the features which are all null in each instance (used by GA to mask the chromosomes)
+        if (filename_prefix.equals("train"))
+            GANullFeatureIndex.create(protocol_file_path, no_of_os_instances, attribute_names_edited.size());
     }
 
     public static void deleteFolder(String protocol_file_path) {
@@ -785,38 +774,33 @@ public class Main {
         }
     }
 
-    public static void addDummyExamplesForMissingClasses(int no_of_os_instances, String protocol_file_path, String filename_prefix, String tshark_attributes, ArrayList<String> classes) {
+    public static void addDummyExamplesForMissingClasses(int no_of_os_instances, String protocol_file_path, String filename_prefix, int no_of_attributes, ArrayList<String> classes) {
         for (int i = 0; i < no_of_os_instances; i++) {
-            HashMap<String, Integer> unique_classes = new HashMap<>();
+            HashSet<String> unique_classes = new HashSet<>();
             String input_file = protocol_file_path + "/" + filename_prefix + "_instance_" + (i + 1);
             String line;
 
             try {
                 BufferedReader reader = new BufferedReader(new FileReader(input_file));
-                while ((line = reader.readLine()) != null) {
-                    if (!line.trim().isEmpty()) {
-                        if (line.charAt(0) != '@') {
-                            unique_classes.put(line.split(",")[line.split(",").length - 1], -1);
-                        }
-                    }
-                }
+                while ((line = reader.readLine()) != null)
+                    if (!line.trim().isEmpty())
+                        unique_classes.add(line.split(",")[line.split(",").length - 1]);
+                reader.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
 
-            // for each class in the train file, find those that do not occur in testing data
-            int no_of_tokens = get_no_of_lines(tshark_attributes);
+            // for each class, add a dummy example if it does not occur in the instance file
             try {
                 BufferedWriter output_text = new BufferedWriter(new FileWriter(new File(input_file), true));
                 for (int j = 0; j < classes.size(); j++) {
-                    if (!unique_classes.containsKey(classes.get(j))) {
-                        String new_line = "";
-                        for (int k = 0; k < no_of_tokens; k++)
-                            new_line += "?,";
-                        new_line += classes.get(j);
-                        output_text.write(new_line);
+                    if (!unique_classes.contains(classes.get(j))) {
+                        StringBuilder new_line = new StringBuilder();
+                        for (int k = 0; k < no_of_attributes; k++)
+                            new_line.append("?,");
+                        new_line.append(classes.get(j));
+                        output_text.write(new_line.toString());
                         output_text.newLine();
-                        output_text.flush();
                     }
                 }
                 output_text.close();
@@ -826,68 +810,24 @@ public class Main {
         }
     }
 
-    public static void removeDummyExamples(String input_file, String write_file, String tshark_attributes) {
-        String line;
-
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader(input_file));
-            BufferedWriter output = new BufferedWriter(new FileWriter(new File(write_file), false));
-
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty() || line.charAt(0) == '@') {
-                    output.write(line);
-                    output.newLine();
-                    output.flush();
-                }
-                else {
-                    int no_of_tokens = get_no_of_lines(tshark_attributes);
-                    String[] tokens = line.split(",");
-                    int no_of_null = 0;
-                    for (int j = 0; j < tokens.length-1; j++) {
-                        if (tokens[j].equals("?"))
-                            no_of_null++;
-                    }
-                    if (no_of_null < no_of_tokens) {
-                        output.write(line);
-                        output.newLine();
-                        output.flush();
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        new File(input_file).delete();
-        new File(write_file).renameTo(new File(input_file));
-    }
-
     public static void convertToArff(String input, ArrayList<String> attribute_names_edited) {
-        try {
-            // load CSV
-            CSVLoader loader = new CSVLoader();
-            loader.setSource(new File(input));
-            String[] options = new String[1];
-            options[0] = "-H";
-            loader.setOptions(options);
-            Instances data = loader.getDataSet();
-            for (int j = 0; j < attribute_names_edited.size(); j++)
-                data.renameAttribute(j, attribute_names_edited.get(j).split(",")[0]);
-            data.renameAttribute(attribute_names_edited.size(), "class");
-
-            // save ARFF
-            ArffSaver saver = new ArffSaver();
-            saver.setInstances(data);
-            saver.setFile(new File(input + ".arff"));
-            saver.writeBatch();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        ArffWriter.write(input, attribute_names_edited); // also writes the binary copy, loaded instead of the arff by the later stages
     }
 
     // Uses GA to select features
     public static void select_features(String protocol_file_name, int population, String selected_features_file_path, GAParameters gaParameters) {
+        // Load the train instances once, they are shared by all fitness evaluations
+        gaParameters.datasetCache = new GADatasetCache(gaParameters.work_folder, gaParameters.no_of_os_instances);
+        gaParameters.nullFeatureIndex = new GANullFeatureIndex(gaParameters.work_folder, gaParameters.no_of_os_instances, gaParameters.no_of_features);
+
+        // Reuse the fitness values calculated by the previous runs on the same data
+        gaParameters.fitnessStore = new GAFitnessStore(gaParameters.work_folder + "/fitness_cache", gaParameters);
+        int loaded = gaParameters.fitnessStore.load(gaParameters.preCalculatedGenes, gaParameters.no_of_features + gaParameters.number_of_bits_for_parameters);
+        System.out.println(ANSI_BLUE + "Fitness values loaded from previous runs: " + ANSI_RED + loaded + ANSI_RESET);
+
         new GA().execute(protocol_file_name, population, selected_features_file_path, gaParameters);
+
+        gaParameters.fitnessStore.close();
         //new HillClimber().execute(weka_path, protocol_file_name, iteration, path_to_arffs, get_no_of_lines(protocol_file_name), weights, no_of_os_instances);
     }
 
@@ -924,15 +864,16 @@ public class Main {
                 if (new File(path + "test_instance_" + i + ".arff").isFile()) { // if file exists
                     System.out.println(ANSI_RED + "FILE " + i + ": " + path + "test_instance_" + i + ".arff" + ANSI_RESET);
                     System.out.println();
-                    results.add(new ClassifyML().train_test(train,
+                    ClassifyML classifyML = new ClassifyML();
+                    results.add(classifyML.train_test(train,
                             path + "test_instance_" + i + ".arff",
                             get_indices(selected_features_file_path),
                             classifier,
                             true,
                             false,
                             gaParameters,
-                            null,
-                            path));
+                            null));
+                    classifyML.save_model(path);
                     System.out.println();
                     System.out.println(ANSI_BLUE + "++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++" + ANSI_RESET);
                     System.out.println();
@@ -961,7 +902,7 @@ public class Main {
         }
     }
 
-    public static void test_packets_in_group(String test, String path, String k, boolean verbose, String config_path, double threshold_group) {
+    public static void test_packets_in_group(String test, String path, String k, boolean verbose, String config_path, double threshold_group, int max_threads) {
         if (config_path.equals("")) {
             System.out.println("Error! Config file not provided!");
             System.exit(0);
@@ -1009,7 +950,7 @@ public class Main {
         }
 
         try {
-            new ClassifyGroup().train_test(test, path, k, protocol_weights, verbose, feature_orders, threshold_group);
+            new ClassifyGroup().train_test(test, path, k, protocol_weights, verbose, feature_orders, threshold_group, max_threads);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1045,24 +986,16 @@ public class Main {
         new File(work_folder + "/TsharkSelected/").mkdirs();
 
         try {
-            // Get the number of classes
-            int no_of_features = get_no_of_lines(tshark_features_list_path);
             ArrayList<String> fields = get_lines_from_file(tshark_features_list_path);
             BufferedWriter output_text = new BufferedWriter(new FileWriter(tsharkselected_features_list_path, false));
 
-            int executed = 0;
+            ArrayList<String> pcap_files = new ArrayList<>();
+            for (String pcapname : pcapnames_train)
+                pcap_files.add(work_folder + "/pcap_files/" + pcapname);
 
-            while (executed < no_of_features) {
-                ExecutorService executor = Executors.newFixedThreadPool(Math.min(max_threads, no_of_features - executed));
-
-                for (int i = executed; i < (executed + Math.min(max_threads, no_of_features - executed)); i++)
-                    executor.execute(new FindNonNullFeaturesThread(protocolToFilter, fields.get(i), pcapnames_train, work_folder, output_text, i+1, no_of_features, useStreamFeatures)); // calling execute method of ExecutorService
-
-                executor.shutdown();
-
-                while (!executor.isTerminated()) {}
-
-                executed += Math.min(max_threads, no_of_features - executed);
+            for (String field : FieldProbe.findNonNullFields(protocolToFilter, fields, pcap_files, max_threads, useStreamFeatures)) {
+                output_text.write(field);
+                output_text.newLine();
             }
 
             output_text.close();
@@ -1119,111 +1052,6 @@ public class Main {
     }
 }
 
-class FindNonNullFeaturesThread extends Thread {
-    public static final String ANSI_RESET = "\u001B[0m";
-    public static final String ANSI_BLACK = "\u001B[30m";
-    public static final String ANSI_RED = "\u001B[31m";
-    public static final String ANSI_GREEN = "\u001B[32m";
-    public static final String ANSI_YELLOW = "\u001B[33m";
-    public static final String ANSI_BLUE = "\u001B[34m";
-    public static final String ANSI_PURPLE = "\u001B[35m";
-    public static final String ANSI_CYAN = "\u001B[36m";
-    public static final String ANSI_WHITE = "\u001B[37m";
-    private Thread t;
-    private String threadName;
-    private String packetProtocol;
-    private String current_field;
-    private int no_of_classes;
-    private ArrayList<String> classes;
-    private String work_folder;
-    private BufferedWriter output_text;
-    private int pos_of_current_field;
-    private int no_of_fields;
-    private boolean useStreamFeatures;
-
-    FindNonNullFeaturesThread(String protocolToFilter, String current_field_input, ArrayList<String> classes, String work_folder, BufferedWriter output_text, int pos_of_current_field, int no_of_fields, boolean useStreamFeatures) {
-        this.current_field = current_field_input;
-        this.no_of_classes = classes.size();
-        this.classes = classes;
-        this.work_folder = work_folder;
-        this.output_text = output_text;
-        this.pos_of_current_field = pos_of_current_field;
-        this.no_of_fields = no_of_fields;
-        this.packetProtocol = protocolToFilter;
-        this.useStreamFeatures = useStreamFeatures;
-
-        threadName = current_field.split(",")[0];
-    }
-
-    // check this
-    public void run() {
-        ArrayList<String> output = new ArrayList<>();
-        boolean write_to_file = false;
-        String featureName = current_field.split(",")[0];
-
-        if (current_field.split("_")[0].equals("stream") && useStreamFeatures)
-            write_to_file = true;
-        else {
-            // For each class (OS), get the feature contents
-            for (int i = 0; i < no_of_classes; i++) {
-                String current_os = classes.get(i);
-
-                if (packetProtocol == null)
-                    output.addAll(new ExecuteSystemCommand().execute("tshark -n -r " + work_folder + "/pcap_files/" + current_os + " -Tfields -e " + featureName, false));
-                else
-                    output.addAll(new ExecuteSystemCommand().execute("tshark -n -r " + work_folder + "/pcap_files/" + current_os + " -Tfields -e " + featureName + " -Y " + packetProtocol, false));
-            }
-
-            // Check if the feature is null
-            // Get unique entries
-            ArrayList<String> listDistinct = (ArrayList<String>) output.stream().distinct().collect(Collectors.toList());
-
-            if (listDistinct.size() > 1) { // if the outputs are not all null, write the feature name to the file (selected feature)
-                if (current_field.split(",").length > 1) // Check if feature is hexadecimal
-                    write_to_file = true;
-                else {
-                    // Check if feature contains : ...
-                    boolean ignore = false;
-                    for (int i = 0; i < listDistinct.size(); i++) {
-                        if (listDistinct.get(i).contains(":")) {
-                            ignore = true;
-                            break;
-                        }
-                        else if ((listDistinct.get(i).length() - listDistinct.get(i).replace(".", "").length()) > 1) {
-                            ignore = true;
-                            break;
-                        }
-                    }
-
-                    if (!ignore)
-                        write_to_file = true;
-                }
-            }
-        }
-
-        if (write_to_file) {
-            synchronized(output_text) {
-                try {
-                    output_text.write(current_field);
-                    output_text.newLine();
-                    output_text.flush();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        System.out.println(ANSI_BLUE + "Feature: " + ANSI_GREEN + featureName + ANSI_BLUE + " (" + pos_of_current_field + "/" + no_of_fields + ")" + ANSI_RESET);
-    }
-
-    public void start () {
-        if (t == null) {
-            t = new Thread (this, threadName);
-            t.start ();
-        }
-    }
-}
-
 class ExtractFeaturesThread extends Thread {
     public static final String ANSI_RESET = "\u001B[0m";
     public static final String ANSI_BLACK = "\u001B[30m";
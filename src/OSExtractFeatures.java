@@ -5,7 +5,7 @@ import java.util.*;
 
 public class OSExtractFeatures {
     public void extract(String protocol_filter, String tshark_attributes_input_file, String output_file, String pcap_file, String os, boolean useDerivedFeatures, ArrayList<String> derivedFeaturesSuffixConsider, ArrayList<String> derivedFeaturesSuffixIgnore, ArrayList<String> derivedFeaturesSuffixInclude) {
-        ArrayList<ArrayList<String>> contents = new ArrayList<>(); // Create contents array
+        ArrayList<FeatureColumn> contents = new ArrayList<>(); // Create contents array
 
         // Get attribute labels
         ArrayList<String> attribute_names = getAttributeLabels(tshark_attributes_input_file);
@@ -17,10 +17,39 @@ public class OSExtractFeatures {
         // if filtering for a specific protocol is needed
         if (protocol_filter != null)
             tshark_command_to_execute += " -Y " + protocol_filter;
-        tshark_command_to_execute += " -Tfields -e ";
+        tshark_command_to_execute += " -Tfields";
+
+        ////////////////////////////////////////////////////////
+        // Read all the fields of the packets with one tshark //
+        ////////////////////////////////////////////////////////
+        LinkedHashMap<String, Integer> fields = new LinkedHashMap<>(); // field name -> column in the tshark output
+        fields.put("frame.protocols", 0);
+        for (int index = 0; index < no_of_attributes; index++) { // for each attribute
+            String header_name = attribute_names.get(index).split(",")[0];
+
+            if (header_name.contains("__"))
+                continue;
+
+            String field = header_name;
+            if (header_name.equals("stream_dst_no") || header_name.equals("stream_dst_cantor"))
+                field = "ip.dst";
+            else if (header_name.equals("stream_iat"))
+                field = "frame.time_delta";
+            else if (header_name.equals("stream_packetlength"))
+                field = "frame.len";
+            else if (header_name.split("_")[0].equals("stream"))
+                continue; // read by separate tshark runs on tcp packets
+
+            fields.putIfAbsent(field, fields.size());
+        }
+
+        String fields_command = tshark_command_to_execute;
+        for (String field : fields.keySet())
+            fields_command += " -e " + field;
+        ArrayList<FeatureColumn> columns = executeFields(fields_command, fields.size()); // run tshark and get the output
 
         // Get number of packets
-        int no_of_packets = new ExecuteSystemCommand().execute(tshark_command_to_execute + "frame.protocols", true).size();
+        int no_of_packets = columns.get(0).size();
 
         ///////////////////////////////////////
         // Read packet field data into array //
@@ -35,78 +64,63 @@ public class OSExtractFeatures {
                     if (header_name.equals("stream_dst_no") || header_name.equals("stream_dst_cantor")) {
                         // ip.dst.no (no of unique ases that the device communicates with)
                         // ip.dst.cantor (cantor(multiplication) of the 2 most visited ases by the device)
-                        contents.add(streamASRelatedFeatures(tshark_command_to_execute, header_name));
+                        contents.add(streamASRelatedFeatures(columns.get(fields.get("ip.dst")), header_name));
                     }
                     else if (header_name.equals("stream_synfin")) {
                         // number of packets between tcp syn and fin packets in the device
-                        contents.add(streamSynFinFeatures(pcap_file, no_of_packets));
+                        contents.add(FeatureColumn.of(streamSynFinFeatures(pcap_file, no_of_packets)));
                     }
                     else if (header_name.equals("stream_iat")) {
                         // inter-arrival-time of packets
-                        contents.add(streamIatFeatures(tshark_command_to_execute, header_name));
+                        contents.add(streamIatFeatures(columns.get(fields.get("frame.time_delta")), header_name));
                     }
                     else if (header_name.equals("stream_synfintime")) {
                         // time between tcp syn and fin packets in the device
-                        contents.add(streamSynFinTimeFeatures(tshark_command_to_execute, no_of_packets));
+                        contents.add(FeatureColumn.of(streamSynFinTimeFeatures(tshark_command_to_execute, no_of_packets)));
                     }
                     else if (header_name.equals("stream_packetlength")) {
                         // packet size
-                        contents.add(streamPacketLengthFeatures(tshark_command_to_execute, header_name));
+                        contents.add(streamPacketLengthFeatures(columns.get(fields.get("frame.len")), header_name));
                     }
                 }
                 else {
                     // non-behavior-related features
-                    contents.add(nonStreamFeatures(tshark_command_to_execute, header_name, attribute_names, index));
+                    contents.add(nonStreamFeatures(columns.get(fields.get(header_name)), header_name, attribute_names, index));
                 }
 
-                ArrayList<String> content = contents.get(contents.size()-1); // get the recently added item
+                FeatureColumn content = contents.get(contents.size()-1); // get the recently added item
+                content.pack();
 
                 // generate derived features
                 if (useDerivedFeatures && !derivedFeaturesSuffixIgnore.contains(header_name)) {
                     DerivedFeature values = getDerivedFeatures(content);
 
                     if (derivedFeaturesSuffixInclude.contains(header_name))
-                        for (int i = 0; i < content.size(); i++)
-                            content.set(i, "?");
+                        content.clear();
 
                     for (int i = 0; i < derivedFeaturesSuffixConsider.size(); i++) {
-                        ArrayList<String> contentToAdd = new ArrayList<>();
-                        if (derivedFeaturesSuffixConsider.get(i).equals("min")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(Double.toString(values.min));
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("median")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(Double.toString(values.median));
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("mean")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(values.mean);
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("max")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(Double.toString(values.max));
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("mostcommon")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(Double.toString(values.mostcommon));
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("variance")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(values.variance);
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("interquartile")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(Double.toString(values.interquartile));
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("stddeviation")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(values.stddeviation);
-                        }
-                        else if (derivedFeaturesSuffixConsider.get(i).equals("uniquecount")) {
-                            for (int j = 0; j < content.size(); j++)
-                                contentToAdd.add(Integer.toString(values.uniquecount));
-                        }
+                        String valueToAdd = null;
+                        if (derivedFeaturesSuffixConsider.get(i).equals("min"))
+                            valueToAdd = Double.toString(values.min);
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("median"))
+                            valueToAdd = Double.toString(values.median);
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("mean"))
+                            valueToAdd = values.mean;
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("max"))
+                            valueToAdd = Double.toString(values.max);
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("mostcommon"))
+                            valueToAdd = Double.toString(values.mostcommon);
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("variance"))
+                            valueToAdd = values.variance;
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("interquartile"))
+                            valueToAdd = Double.toString(values.interquartile);
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("stddeviation"))
+                            valueToAdd = values.stddeviation;
+                        else if (derivedFeaturesSuffixConsider.get(i).equals("uniquecount"))
+                            valueToAdd = Integer.toString(values.uniquecount);
+
+                        FeatureColumn contentToAdd = valueToAdd == null ? new FeatureColumn() : FeatureColumn.constant(valueToAdd, content.size());
+                        contentToAdd.pack();
                         contents.add(contentToAdd);
                     }
                 }
@@ -119,53 +133,48 @@ public class OSExtractFeatures {
         }
 
         // Add classes
-        ArrayList<String> classes_append = new ArrayList<>();
-        for (int j = 0; j < contents.get(0).size(); j++)
-            classes_append.add(os.split("_")[0]);
+        FeatureColumn classes_append = FeatureColumn.constant(os.split("_")[0], contents.get(0).size());
         contents.add(classes_append);
 
         /////////////////////////
         // Remove null records //
         /////////////////////////
+        BitSet records_to_keep = new BitSet();
         for (int i = 0; i < contents.get(0).size(); i++) { // for each record
             int no_of_null = 0;
 
             for (int j = 0; j < (contents.size()-1); j++) // for each column (-1 to ignore class column)
-
-                if (contents.get(j).get(i).equals("?"))
+                if (contents.get(j).isMissing(i))
                     no_of_null++;
 
-            if (no_of_null == no_of_attributes) { // remove null records
-                for (int k = 0; k < contents.size(); k++) {
-                    ArrayList<String> temp = contents.get(k);
-                    temp.remove(i);
-                    contents.set(k, temp);
-                }
-                i--;
-            }
+            if (no_of_null != no_of_attributes) // keep the records which are not null
+                records_to_keep.set(i);
         }
 
+        for (FeatureColumn content : contents)
+            content.compact(records_to_keep);
+
         ////////////////////////////
         // Write examples to file //
         ////////////////////////////
 
-        // Write the records to file
+        // Write the records to file (one builder reused for all the records, flushed once at the end)
         try {
-            FileWriter writer2 = new FileWriter(output_file, false);
+            BufferedWriter writer2 = new BufferedWriter(new FileWriter(output_file, false), 1 << 16);
+            StringBuilder output = new StringBuilder();
 
             for (int i = 0; i < contents.get(0).size(); i++) { // for each record
-                String output = "";
+                output.setLength(0);
 
                 // Prepare the record to be put to the file
                 for (int j = 0; j < contents.size(); j++) { // for each column
-                    String item = contents.get(j).get(i);
-                    output = output + "," + item;
+                    if (j > 0)
+                        output.append(',');
+                    contents.get(j).append(output, i);
                 }
 
-                output = output.substring(1); // remove the first comma
-
-                writer2.write(output + "\n");
-                writer2.flush();
+                output.append('\n');
+                writer2.append(output);
             }
 
             writer2.close();
@@ -174,8 +183,19 @@ public class OSExtractFeatures {
         }
     }
 
-    public static ArrayList<String> streamIatFeatures(String tshark_command_to_execute, String header_name) {
-        ArrayList<String> content = new ExecuteSystemCommand().execute(tshark_command_to_execute + "frame.time_delta", true); // run tshark and get the output
+    // Run tshark (see ExecuteSystemCommand.executeFields), exiting if it fails as the features would be incomplete
+    public static ArrayList<FeatureColumn> executeFields(String tshark_command, int no_of_fields) {
+        ArrayList<FeatureColumn> columns = new ExecuteSystemCommand().executeFields(tshark_command, no_of_fields);
+
+        if (columns == null) {
+            System.out.println("Feature extraction failed, command: " + tshark_command);
+            System.exit(0);
+        }
+
+        return columns;
+    }
+
+    public static FeatureColumn streamIatFeatures(FeatureColumn content, String header_name) {
 
         // check if output of tshark is empty
         if (content.size() == 0) {
@@ -184,17 +204,15 @@ public class OSExtractFeatures {
         }
 
         // select the durations that are between 0 and 1 seconds
-        for (int i = 0; i < content.size(); i++) {
-            double item = Double.parseDouble(content.get(i));
-            if (item < 0.0 || item > 1.0)
-                content.set(i, "?");
-        }
-
-        return content;
+        return content.map(item -> {
+            double duration = Double.parseDouble(item);
+            if (duration < 0.0 || duration > 1.0)
+                return "?";
+            return item;
+        });
     }
 
-    public static ArrayList<String> streamPacketLengthFeatures(String tshark_command_to_execute, String header_name) {
-        ArrayList<String> content = new ExecuteSystemCommand().execute(tshark_command_to_execute + "frame.len", true); // run tshark and get the output
+    public static FeatureColumn streamPacketLengthFeatures(FeatureColumn content, String header_name) {
 
         // check if output of tshark is empty
         if (content.size() == 0) {
@@ -202,7 +220,7 @@ public class OSExtractFeatures {
             System.exit(0);
         }
 
-        return content;
+        return content.map(item -> item); // copy, the tshark column may be used by other features
     }
 
     public static ArrayList<String> streamSynFinFeatures(String pcap_file, int no_of_packets) {
@@ -210,8 +228,9 @@ public class OSExtractFeatures {
         for (int i = 0; i < no_of_packets; i++)
             content.add("?");
 
-        ArrayList<String> tcp_syn = new ExecuteSystemCommand().execute("tshark -n -r " + pcap_file + " -Tfields -e tcp.flags.syn tcp", true);
-        ArrayList<String> tcp_fin = new ExecuteSystemCommand().execute("tshark -n -r " + pcap_file + " -Tfields -e tcp.flags.fin tcp", true);
+        ArrayList<FeatureColumn> tcp_flags = executeFields("tshark -n -r " + pcap_file + " -Tfields -e tcp.flags.syn -e tcp.flags.fin tcp", 2);
+        FeatureColumn tcp_syn = tcp_flags.get(0);
+        FeatureColumn tcp_fin = tcp_flags.get(1);
 
         // find unique number of packets between tcp syn and fin packets of a device
         int i = 0;
@@ -244,9 +263,10 @@ public class OSExtractFeatures {
         for (int i = 0; i < no_of_packets; i++)
             content.add("?");
 
-        ArrayList<String> tcp_syn = new ExecuteSystemCommand().execute(tshark_command_to_execute + "tcp.flags.syn tcp", true);
-        ArrayList<String> tcp_fin = new ExecuteSystemCommand().execute(tshark_command_to_execute + "tcp.flags.fin tcp", true);
-        ArrayList<String> epoch = new ExecuteSystemCommand().execute(tshark_command_to_execute + "frame.time_epoch tcp", true);
+        ArrayList<FeatureColumn> tcp_fields = executeFields(tshark_command_to_execute + " -e tcp.flags.syn -e tcp.flags.fin -e frame.time_epoch tcp", 3);
+        FeatureColumn tcp_syn = tcp_fields.get(0);
+        FeatureColumn tcp_fin = tcp_fields.get(1);
+        FeatureColumn epoch = tcp_fields.get(2);
 
         // find unique distances of tcp syn and fin
         int i = 0;
@@ -280,15 +300,15 @@ public class OSExtractFeatures {
         return content;
     }
 
-    public static DerivedFeature getDerivedFeatures(ArrayList<String> content) {
+    public static DerivedFeature getDerivedFeatures(FeatureColumn content) {
         DerivedFeature values = new DerivedFeature();
 
         ArrayList<Double> contentDouble = new ArrayList<>();
 
         // copy output to double array
         for (int i = 0; i < content.size(); i++)
-            if (!content.get(i).equals("?"))
-                contentDouble.add(Double.parseDouble(content.get(i)));
+            if (!content.isMissing(i))
+                contentDouble.add(content.getNumber(i));
 
         if (contentDouble.size() > 0) { // all column is not "?"
             // sort array
@@ -364,8 +384,7 @@ public class OSExtractFeatures {
         return values;
     }
 
-    public static ArrayList<String> nonStreamFeatures(String tshark_command_to_execute, String header_name, ArrayList<String> attribute_names, int index) {
-        ArrayList<String> content = new ExecuteSystemCommand().execute(tshark_command_to_execute + header_name, true); // run tshark and get the output
+    public static FeatureColumn nonStreamFeatures(FeatureColumn content, String header_name, ArrayList<String> attribute_names, int index) {
 
         // check if output of tshark is empty
         if (content.size() == 0) {
@@ -373,12 +392,10 @@ public class OSExtractFeatures {
             System.exit(0);
         }
 
-        //////////////////////////////////////////////////////////////////
-        // Fix items in arraylist (e.g. remove commas, convert hexa...) //
-        //////////////////////////////////////////////////////////////////
-        for (int i = 0; i < content.size(); i++) { // for each record
-            String item = content.get(i);
-
+        ////////////////////////////////////////////////////////////////
+        // Fix items in column (e.g. remove commas, convert hexa...) //
+        ////////////////////////////////////////////////////////////////
+        return content.map(item -> { // for each distinct item
             // Modify item
             item = item.split(",")[0]; // remove commas
             item = item.split(";")[0]; // remove semi-colons
@@ -395,21 +412,17 @@ public class OSExtractFeatures {
                     if (!item.contains(".") && !item.equals("?"))
                         item = Integer.toString(hex2decimal(item));
 
-            content.set(i, item);
-        }
-
-        return content;
+            return item;
+        });
     }
 
-    public static ArrayList<String> streamASRelatedFeatures(String tshark_command_to_execute, String header_name) {
+    public static FeatureColumn streamASRelatedFeatures(FeatureColumn content, String header_name) {
         // ip.dst.no (no of unique ases that the device communicates with)
         // ip.dst.cantor (cantor(multiplication) of the 2 most visited ases by the device)
 
         HashMap<Integer, Integer> unique_ases = new HashMap<>();
         HashMap<String, Integer> unique_ips = new HashMap<>();
 
-        ArrayList<String> content = new ExecuteSystemCommand().execute(tshark_command_to_execute + "ip.dst", true); // run tshark and get the output
-
         // check if output of tshark is empty
         if (content.size() == 0) {
             System.out.printf(header_name + " is empty!");
@@ -445,8 +458,7 @@ public class OSExtractFeatures {
         ArrayList<IntInt> x = convertIntIntMapToIntIntArrayList(unique_ases);
 
         if (header_name.equals("stream_dst_no")) {
-            for (int i = 0; i < content.size(); i++)
-                content.set(i, Integer.toString(unique_ases.size()));
+            return FeatureColumn.constant(Integer.toString(unique_ases.size()), content.size());
         }
         else if (header_name.equals("stream_dst_cantor")) {
             // Sort the ases by their occurrences
@@ -458,11 +470,10 @@ public class OSExtractFeatures {
             else if (x.size() == 1)
                 cantor = x.get(0).getKey();
 
-            for (int i = 0; i < content.size(); i++)
-                content.set(i, Integer.toString(cantor));
+            return FeatureColumn.constant(Integer.toString(cantor), content.size());
         }
 
-        return content;
+        return content.map(item -> item);
     }
 
     public static double getMostOccurring(ArrayList<Double> input) {